@@ -0,0 +1,119 @@
+#!/usr/bin/env bash
+# Startup time of the beer API: milliseconds from launching the JVM to the first successful
+# GET /api/v1/beer/{id}, against a file database with beers in it.
+#
+#   scripts/startup.sh prepare            unpacks the jar to target/startup/app, seeds target/startup/beers
+#   scripts/startup.sh train              AppCDS archive target/startup/app.jsa from a training run (fast profile)
+#   scripts/startup.sh measure MODE [N]   N timed starts (default 5), MODE is one of
+#                                           jar       java -jar, default settings
+#                                           exploded  unpacked jar on the class path, default settings
+#                                           fast      exploded with the fast-startup profile
+#                                           fast-cds  fast with the AppCDS archive
+#
+# Build the jar first (mvn clean package -Pfast-startup for the component index). The archive only fits the jar
+# it was trained with: run prepare and train again after every build.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+JAR=$(ls target/restdocs-example-*.jar | head -n 1)
+DIR=target/startup
+PORT=${PORT:-8089}
+BEERS=${BEERS:-10000}
+JAVA_OPTS=${JAVA_OPTS:--Xmx512m}
+
+DB_ARGS=(--spring.datasource.url="jdbc:h2:file:./$DIR/beers;DB_CLOSE_ON_EXIT=FALSE" --spring.jpa.hibernate.ddl-auto=none --server.port="$PORT")
+
+classpath() {
+    local classpath=$DIR/app/application.jar
+    # the order of the jar, the class path has to be the same for training and use of the archive
+    while read -r line; do
+        classpath=$classpath:$DIR/app/BOOT-INF/lib/$(echo "$line" | sed 's/^- "\(.*\)"$/\1/')
+    done < $DIR/app/BOOT-INF/classpath.idx
+    echo "$classpath"
+}
+
+main_class() {
+    unzip -p "$JAR" META-INF/MANIFEST.MF | tr -d '\r' | sed -e ':a' -e 'N' -e '$!ba' -e 's/\n //g' \
+        | sed -n 's/^Start-Class: //p'
+}
+
+# prints the milliseconds until GET /api/v1/beer/{id} answers 200, then stops the application
+start_and_wait() {
+    local start end pid
+    start=$(date +%s%N)
+    "$@" > $DIR/app.log 2>&1 &
+    pid=$!
+
+    until curl -sf -o /dev/null "http://localhost:$PORT/api/v1/beer/$(cat $DIR/beer-id)"; do
+        if ! kill -0 $pid 2> /dev/null; then
+            echo "application exited, see $DIR/app.log" >&2
+            exit 1
+        fi
+        sleep 0.01
+    done
+    end=$(date +%s%N)
+
+    echo $(( (end - start) / 1000000 ))
+
+    if [ -n "${TRAINING:-}" ]; then
+        # more of the request paths for the archive
+        curl -sf -o /dev/null "http://localhost:$PORT/api/v1/beer?pageSize=10"
+        curl -sf -o /dev/null "http://localhost:$PORT/api/v1/beer/search?beerName=M&pageSize=10"
+        curl -sf -o /dev/null "http://localhost:$PORT/api/v1/beer/search/autocomplete?q=m"
+    fi
+
+    kill $pid
+    wait $pid || true
+}
+
+command_line() {
+    case $1 in
+        jar)      echo java $JAVA_OPTS -jar "$JAR" ;;
+        exploded) echo java $JAVA_OPTS -cp "$(classpath)" "$(main_class)" ;;
+        fast)     echo java $JAVA_OPTS -cp "$(classpath)" "$(main_class)" --spring.profiles.active=fast-startup ;;
+        fast-cds) echo java $JAVA_OPTS -XX:SharedArchiveFile=$DIR/app.jsa -Xlog:cds=off -Xlog:cds+dynamic=off \
+                      -cp "$(classpath)" "$(main_class)" --spring.profiles.active=fast-startup ;;
+        *)        echo "unknown mode $1" >&2; exit 1 ;;
+    esac
+}
+
+case ${1:-} in
+    prepare)
+        rm -rf $DIR
+        mkdir -p $DIR/app
+        (cd $DIR/app && unzip -q "../../../$JAR")
+        # CDS does not take directories on the class path, the application classes go into a jar of their own
+        jar cf $DIR/app/application.jar -C $DIR/app/BOOT-INF/classes .
+
+        java $JAVA_OPTS -jar "$JAR" --spring.datasource.url="jdbc:h2:file:./$DIR/beers;DB_CLOSE_ON_EXIT=FALSE" \
+            --spring.jpa.hibernate.ddl-auto=update --server.port="$PORT" --beer.seed.count="$BEERS" > $DIR/app.log 2>&1 &
+        pid=$!
+        # the beers are seeded after the web server started
+        until grep -q "Seeded $BEERS beers in" $DIR/app.log; do sleep 0.5; done
+        curl -sf "http://localhost:$PORT/api/v1/beer?pageSize=1&withCount=false" \
+            | sed -n 's/.*"id":"\([^"]*\)".*/\1/p' > $DIR/beer-id
+        kill $pid
+        wait $pid || true
+        echo "seeded $BEERS beers, timing GET /api/v1/beer/$(cat $DIR/beer-id)"
+        ;;
+    train)
+        rm -f $DIR/app.jsa
+        TRAINING=1 start_and_wait java $JAVA_OPTS -XX:ArchiveClassesAtExit=$DIR/app.jsa \
+            -cp "$(classpath)" "$(main_class)" --spring.profiles.active=fast-startup "${DB_ARGS[@]}" > /dev/null
+        ls -l $DIR/app.jsa
+        ;;
+    measure)
+        runs=()
+        read -r -a cmd <<< "$(command_line "$2")"
+        for _ in $(seq "${3:-5}"); do
+            runs+=("$(start_and_wait "${cmd[@]}" "${DB_ARGS[@]}")")
+        done
+        median=$(printf '%s\n' "${runs[@]}" | sort -n | sed -n "$(( (${#runs[@]} + 1) / 2 ))p")
+        echo "$2: ${runs[*]} ms, median $median ms"
+        ;;
+    *)
+        sed -n '2,15p' "$0"
+        exit 1
+        ;;
+esac
@@ -0,0 +1,99 @@
+package com.eigenbaumarkt.restdocsexample.domain;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// primary key lookups against an H2 table keyed by the old varchar(36) id and by binary(16) ids,
+// random and time-ordered; the disk space used by table and primary key index is printed after loading
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeerIdStorageBenchmark {
+
+    @Param({"varchar", "binary", "binary-time-ordered"})
+    public String idStorage;
+
+    @Param({"100000"})
+    public int rows;
+
+    private Connection connection;
+    private PreparedStatement lookup;
+    private Object[] ids;
+
+    @Setup
+    public void setUp() throws SQLException {
+        // a file database, H2 only reports the disk space used by persistent tables
+        connection = DriverManager.getConnection("jdbc:h2:./target/jmh/beer-id-" + idStorage);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists beer");
+            statement.execute("create table beer (id " + ("varchar".equals(idStorage) ? "varchar(36)" : "binary(16)")
+                    + " primary key, beer_name varchar(100))");
+        }
+
+        ids = new Object[rows];
+
+        try (PreparedStatement insert = connection.prepareStatement("insert into beer values (?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                ids[i] = toColumnValue("binary-time-ordered".equals(idStorage)
+                        ? TimeOrderedUUIDGenerator.timeOrderedUUID() : UUID.randomUUID());
+
+                insert.setObject(1, ids[i]);
+                insert.setString(2, "Beer " + i);
+                insert.addBatch();
+
+                if (i % 1000 == 999) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select disk_space_used('BEER')")) {
+            resultSet.next();
+            System.out.printf("%n%s: %d rows use %d KiB%n", idStorage, rows, resultSet.getLong(1) / 1024);
+        }
+
+        lookup = connection.prepareStatement("select beer_name from beer where id = ?");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table beer");
+            statement.execute("shutdown compact");
+        }
+    }
+
+    @Benchmark
+    public String findById() throws SQLException {
+        lookup.setObject(1, ids[ThreadLocalRandom.current().nextInt(rows)]);
+
+        try (ResultSet resultSet = lookup.executeQuery()) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    private Object toColumnValue(UUID id) {
+        if ("varchar".equals(idStorage)) {
+            return id.toString();
+        }
+
+        return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array();
+    }
+}
@@ -0,0 +1,81 @@
+package com.eigenbaumarkt.restdocsexample.repositories;
+
+import com.eigenbaumarkt.restdocsexample.RestdocsExampleApplication;
+import com.eigenbaumarkt.restdocsexample.domain.Beer;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerStyleEnum;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// BeerRepository against the embedded H2 database of the application, with its JPA/Hibernate settings
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeerRepositoryBenchmark {
+
+    @Param({"10000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private BeerRepository beerRepository;
+    private UUID[] ids;
+    private final AtomicLong upc = new AtomicLong(1_000_000_000L);
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(RestdocsExampleApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.main.banner-mode=off", "--logging.level.root=warn");
+        beerRepository = context.getBean(BeerRepository.class);
+
+        List<Beer> beers = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            beers.add(newBeer());
+        }
+
+        ids = new UUID[rows];
+        int i = 0;
+        for (Beer beer : beerRepository.saveAll(beers)) {
+            ids[i++] = beer.getId();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Beer> findById() {
+        return beerRepository.findById(ids[ThreadLocalRandom.current().nextInt(rows)]);
+    }
+
+    @Benchmark
+    public Beer save() {
+        return beerRepository.save(newBeer());
+    }
+
+    private Beer newBeer() {
+        long beerUpc = upc.incrementAndGet();
+
+        return Beer.builder()
+                .beerName("Beer " + beerUpc)
+                .beerStyle(BeerStyleEnum.LAGER.name())
+                .upc(beerUpc)
+                .price(new BigDecimal("12.95"))
+                .build();
+    }
+}
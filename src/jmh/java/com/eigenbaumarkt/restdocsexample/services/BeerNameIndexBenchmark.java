@@ -0,0 +1,48 @@
+package com.eigenbaumarkt.restdocsexample.services;
+
+import com.eigenbaumarkt.restdocsexample.web.model.BeerNameSuggestion;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// autocomplete against an index of generated names, a short query matches many beers, a longer one few:
+// -Djmh.args="BeerNameIndexBenchmark"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeerNameIndexBenchmark {
+
+    private static final String[] PREFIXES = {"Mönchsambacher", "Zwickel", "Kloster", "Schlenkerla", "Weihenstephaner",
+            "Aecht", "Brauhaus", "Landbier", "Keller", "Spezial"};
+    private static final String[] STYLES = {"Lager", "Pilsner", "Weizen", "Dunkel", "Bock", "Rauchbier", "Märzen", "Helles"};
+
+    @Param({"100000"})
+    public int beers;
+
+    @Param({"m", "kloster bo", "schlenkerla rauch 4711"})
+    public String query;
+
+    private BeerNameIndex beerNameIndex;
+
+    @Setup
+    public void setUp() {
+        beerNameIndex = new BeerNameIndex(null);
+        Random random = new Random(42);
+
+        for (int i = 0; i < beers; i++) {
+            beerNameIndex.put(UUID.randomUUID(), PREFIXES[random.nextInt(PREFIXES.length)] + " "
+                    + STYLES[random.nextInt(STYLES.length)] + " " + i);
+        }
+    }
+
+    @Benchmark
+    public List<BeerNameSuggestion> suggest() {
+        return beerNameIndex.suggest(query, 10);
+    }
+}
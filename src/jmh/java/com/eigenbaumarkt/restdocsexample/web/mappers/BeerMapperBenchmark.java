@@ -0,0 +1,97 @@
+package com.eigenbaumarkt.restdocsexample.web.mappers;
+
+import com.eigenbaumarkt.restdocsexample.domain.Beer;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerDTO;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerStyleEnum;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// run with -prof gc and compare gc.alloc.rate.norm (bytes per operation) of the legacy* baselines with the
+// mapping path the application uses: -Djmh.args="BeerMapperBenchmark -prof gc"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeerMapperBenchmark {
+
+    @Param({"100"})
+    public int pageSize;
+
+    private DateMapper dateMapper;
+    private BeerMapper beerMapper;
+    private Beer beer;
+    private BeerDTO beerDTO;
+    private List<Beer> page;
+
+    @Setup
+    public void setUp() {
+        dateMapper = new DateMapper();
+        beerMapper = new BeerMapperImpl(dateMapper);
+
+        beer = Beer.builder()
+                .id(UUID.randomUUID())
+                .version(3L)
+                .createdDate(new Timestamp(System.currentTimeMillis()))
+                .lastModifiedDate(new Timestamp(System.currentTimeMillis()))
+                .beerName("Mönchsambacher Lager")
+                .beerStyle(BeerStyleEnum.LAGER.name())
+                .upc(1900024312001L)
+                .price(new BigDecimal("12.95"))
+                .build();
+
+        beerDTO = beerMapper.BeerToBeerDTO(beer);
+        beerDTO.setId(null);
+        beerDTO.setVersion(null);
+
+        page = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            page.add(beer);
+        }
+    }
+
+    @Benchmark
+    public BeerDTO beerToBeerDTO() {
+        return beerMapper.BeerToBeerDTO(beer);
+    }
+
+    @Benchmark
+    public Beer beerDTOToBeer() {
+        return beerMapper.BeerDTOToBeer(beerDTO);
+    }
+
+    @Benchmark
+    public List<BeerDTO> beersToBeerDTOs() {
+        return beerMapper.BeersToBeerDTOs(page);
+    }
+
+    @Benchmark
+    public List<BeerDTO> legacyBeersToBeerDTOs() {
+        return page.stream().map(beerMapper::BeerToBeerDTO).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public OffsetDateTime asOffsetDateTime() {
+        return dateMapper.asOffsetDateTime(beer.getCreatedDate());
+    }
+
+    // the conversion DateMapper did before, one LocalDateTime per field
+    @Benchmark
+    public OffsetDateTime legacyAsOffsetDateTime() {
+        Timestamp ts = beer.getCreatedDate();
+
+        return OffsetDateTime.of(ts.toLocalDateTime().getYear(), ts.toLocalDateTime().getMonthValue(),
+                ts.toLocalDateTime().getDayOfMonth(), ts.toLocalDateTime().getHour(), ts.toLocalDateTime().getMinute(),
+                ts.toLocalDateTime().getSecond(), ts.toLocalDateTime().getNano(), ZoneOffset.UTC);
+    }
+}
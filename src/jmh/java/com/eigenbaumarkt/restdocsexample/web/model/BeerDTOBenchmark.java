@@ -0,0 +1,100 @@
+package com.eigenbaumarkt.restdocsexample.web.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Jackson and bean validation work done for every BeerDTO the controller reads or writes
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeerDTOBenchmark {
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+
+    private BeerDTO beerDTO;
+    private BeerDTO newBeerDTO;
+    private BeerDTO invalidBeerDTO;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        // configured like the ObjectMapper of Spring Boot: JavaTimeModule, ISO-8601 dates
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        writer = objectMapper.writerFor(BeerDTO.class);
+        reader = objectMapper.readerFor(BeerDTO.class);
+
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+
+        beerDTO = BeerDTO.builder()
+                .id(UUID.randomUUID())
+                .version(3)
+                .createdDate(OffsetDateTime.now())
+                .lastModifiedDate(OffsetDateTime.now())
+                .beerName("Mönchsambacher Lager")
+                .beerStyle(BeerStyleEnum.LAGER)
+                .upc(1900024312001L)
+                .price(new BigDecimal("12.95"))
+                .quantityOnHand(42)
+                .build();
+        json = writer.writeValueAsBytes(beerDTO);
+
+        newBeerDTO = reader.readValue(json);
+        newBeerDTO.setId(null);
+        newBeerDTO.setVersion(null);
+        newBeerDTO.setCreatedDate(null);
+        newBeerDTO.setLastModifiedDate(null);
+
+        invalidBeerDTO = reader.readValue(json);
+        invalidBeerDTO.setBeerName("");
+        invalidBeerDTO.setPrice(new BigDecimal("-1"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(beerDTO);
+    }
+
+    @Benchmark
+    public BeerDTO deserialize() throws IOException {
+        return reader.readValue(json);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<BeerDTO>> validateValid() {
+        return validator.validate(newBeerDTO);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<BeerDTO>> validateInvalid() {
+        return validator.validate(invalidBeerDTO);
+    }
+}
@@ -0,0 +1,119 @@
+package com.eigenbaumarkt.restdocsexample.web.model;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// JSON against the binary formats of BinaryFormatsConfig, for a single beer and a page of 25 beers;
+// the sizes of the payloads are printed once per format
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeerDTOFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    private ObjectWriter beerWriter;
+    private ObjectReader beerReader;
+    private ObjectWriter pageWriter;
+    private ObjectReader pageReader;
+
+    private BeerDTO beerDTO;
+    private BeerPagedList page;
+    private byte[] beerBytes;
+    private byte[] pageBytes;
+
+    // what a client reads a page into, BeerPagedList itself cannot be created by Jackson
+    public static class Page {
+        public List<BeerDTO> content;
+        public long totalElements;
+        public String nextCursor;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        // configured like the ObjectMappers of Spring Boot: JavaTimeModule, ISO-8601 dates
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .factory(factory(format))
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        beerWriter = objectMapper.writerFor(BeerDTO.class);
+        beerReader = objectMapper.readerFor(BeerDTO.class);
+        pageWriter = objectMapper.writerFor(BeerPagedList.class);
+        pageReader = objectMapper.readerFor(Page.class);
+
+        beerDTO = beerDTO(0);
+        List<BeerDTO> beers = IntStream.range(0, 25).mapToObj(BeerDTOFormatBenchmark::beerDTO).collect(Collectors.toList());
+        page = new BeerPagedList(beers, PageRequest.of(0, 25), 1000, "MTYwMjg0NDgwMDAwMHwzZmE4NWY2NA");
+
+        beerBytes = beerWriter.writeValueAsBytes(beerDTO);
+        pageBytes = pageWriter.writeValueAsBytes(page);
+
+        System.out.printf("%n%s: beer %d bytes, page of 25 beers %d bytes%n", format, beerBytes.length, pageBytes.length);
+    }
+
+    @Benchmark
+    public byte[] serializeBeer() throws IOException {
+        return beerWriter.writeValueAsBytes(beerDTO);
+    }
+
+    @Benchmark
+    public BeerDTO deserializeBeer() throws IOException {
+        return beerReader.readValue(beerBytes);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws IOException {
+        return pageWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public Page deserializePage() throws IOException {
+        return pageReader.readValue(pageBytes);
+    }
+
+    private static JsonFactory factory(String format) {
+        switch (format) {
+            case "cbor":
+                return new CBORFactory();
+            case "smile":
+                return new SmileFactory();
+            default:
+                return new JsonFactory();
+        }
+    }
+
+    private static BeerDTO beerDTO(int i) {
+        return BeerDTO.builder()
+                .id(UUID.randomUUID())
+                .version(3)
+                .createdDate(OffsetDateTime.now().minusDays(i))
+                .lastModifiedDate(OffsetDateTime.now())
+                .beerName("Mönchsambacher Lager " + i)
+                .beerStyle(BeerStyleEnum.LAGER)
+                .upc(1900024312001L + i)
+                .price(new BigDecimal("12.95"))
+                .quantityOnHand(42 + i)
+                .build();
+    }
+}
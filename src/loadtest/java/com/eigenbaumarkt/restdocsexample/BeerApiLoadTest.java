@@ -0,0 +1,323 @@
+package com.eigenbaumarkt.restdocsexample;
+
+import com.eigenbaumarkt.restdocsexample.bootstrap.WeightedTable;
+import com.eigenbaumarkt.restdocsexample.domain.Beer;
+import com.eigenbaumarkt.restdocsexample.repositories.BeerRepository;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerDTO;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerStyleEnum;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// the whole application on a random port, with the in-memory H2 database seeded by BeerLoader, under a closed-loop
+// workload: loadtest.concurrency workers each send their next request as soon as the last one is answered, picking
+// GET, LIST, POST or PUT by the weights of loadtest.mix. Requests started during loadtest.warmup are not counted.
+// A closed loop waits for the server, so the latencies are service times at that concurrency, not what clients
+// arriving at a fixed rate would see once the server falls behind. A worker told to come back later (503 with
+// Retry-After, see LimiterConfig) waits that long, unless loadtest.honor-retry-after is false.
+// Run with: mvn -Pload-test test -Dloadtest.concurrency=32 -Dloadtest.duration=60s
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "beer.seed.count=${loadtest.beers:10000}")
+class BeerApiLoadTest {
+
+    enum Operation {
+        GET(200), LIST(200), POST(201), PUT(204);
+
+        private final int expectedStatus;
+
+        Operation(int expectedStatus) {
+            this.expectedStatus = expectedStatus;
+        }
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Value("${beer.seed.count}")
+    int beerCount;
+
+    @Value("${loadtest.concurrency:16}")
+    int concurrency;
+
+    @Value("${loadtest.warmup:10s}")
+    Duration warmup;
+
+    @Value("${loadtest.duration:30s}")
+    Duration duration;
+
+    // weights like beer.seed.styles
+    @Value("${loadtest.mix:GET:70,LIST:10,POST:10,PUT:10}")
+    String mix;
+
+    // thresholds over all measured requests
+    @Value("${loadtest.min-throughput:50}")
+    double minThroughput;
+
+    @Value("${loadtest.max-p99:1s}")
+    Duration maxP99;
+
+    @Value("${loadtest.max-error-rate:0.01}")
+    double maxErrorRate;
+
+    // an answer after that is lost on the client, counted as HttpTimeoutException
+    @Value("${loadtest.request-timeout:10s}")
+    Duration requestTimeout;
+
+    @Value("${loadtest.honor-retry-after:true}")
+    boolean honorRetryAfter;
+
+    // POSTed beers need an UPC of their own, above the seeded ones
+    private final AtomicLong nextUpc = new AtomicLong(900_000_000_000L);
+
+    private HttpClient httpClient;
+    private Operation[] operations;
+    private List<Beer> beers;
+
+    @Test
+    void mixedWorkload() throws Exception {
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        operations = WeightedTable.of(Operation.class, mix);
+        beers = beerRepository.findAllBy(PageRequest.of(0, beerCount)).getContent();
+        assertFalse(beers.isEmpty(), "no beers seeded, set loadtest.beers");
+
+        log.info("{} workers, {} warmup, {} measured, mix {}, {} beers", concurrency, warmup, duration, mix, beers.size());
+
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        List<Future<Map<Operation, OperationStats>>> results = new ArrayList<>(concurrency);
+
+        for (int i = 0; i < concurrency; i++) {
+            results.add(workers.submit(() -> runWorker(measureFrom, end)));
+        }
+
+        Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+
+        try {
+            for (Future<Map<Operation, OperationStats>> result : results) {
+                result.get().forEach((operation, workerStats) ->
+                        stats.computeIfAbsent(operation, OperationStats::new).add(workerStats));
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        OperationStats total = new OperationStats(null);
+        stats.values().forEach(total::add);
+
+        report(stats, total);
+        checkThresholds(total);
+    }
+
+    private Map<Operation, OperationStats> runWorker(long measureFrom, long end) throws InterruptedException {
+        Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (System.nanoTime() < end) {
+            Operation operation = operations[random.nextInt(operations.length)];
+            HttpRequest request = request(operation, beers.get(random.nextInt(beers.size())), random);
+            String error = null;
+
+            long retryAfter = 0;
+
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+
+                if (response.statusCode() != operation.expectedStatus) {
+                    error = String.valueOf(response.statusCode());
+                }
+                if (response.statusCode() == 503 && honorRetryAfter) {
+                    retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(0);
+                }
+            } catch (IOException e) {
+                error = e.getClass().getSimpleName();
+            }
+            long latency = System.nanoTime() - start;
+
+            if (start >= measureFrom) {
+                stats.computeIfAbsent(operation, OperationStats::new).record(latency, error);
+            }
+
+            if (retryAfter > 0) {
+                Thread.sleep(Math.min(TimeUnit.SECONDS.toMillis(retryAfter), TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime())));
+            }
+        }
+
+        return stats;
+    }
+
+    private HttpRequest request(Operation operation, Beer beer, ThreadLocalRandom random) {
+        switch (operation) {
+            case GET:
+                return HttpRequest.newBuilder(uri("/api/v1/beer/" + beer.getId())).timeout(requestTimeout).GET().build();
+            case LIST:
+                return HttpRequest.newBuilder(uri("/api/v1/beer?pageSize=25&pageNumber=" + random.nextInt(10)))
+                        .timeout(requestTimeout).GET().build();
+            case POST:
+                return jsonRequest("/api/v1/beer")
+                        .POST(body(BeerDTO.builder()
+                                .beerName("Load Test Lager " + random.nextInt(1000))
+                                .beerStyle(BeerStyleEnum.LAGER)
+                                .upc(nextUpc.getAndIncrement())
+                                .price(price(random))
+                                .build()))
+                        .build();
+            case PUT:
+                return jsonRequest("/api/v1/beer/" + beer.getId())
+                        .PUT(body(BeerDTO.builder()
+                                .beerName(beer.getBeerName())
+                                .beerStyle(BeerStyleEnum.valueOf(beer.getBeerStyle()))
+                                .upc(beer.getUpc())
+                                .price(price(random))
+                                .build()))
+                        .build();
+            default:
+                throw new IllegalArgumentException(operation.name());
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private HttpRequest.Builder jsonRequest(String path) {
+        return HttpRequest.newBuilder(uri(path)).timeout(requestTimeout).header("Content-Type", "application/json");
+    }
+
+    private HttpRequest.BodyPublisher body(BeerDTO beerDTO) {
+        try {
+            return HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(beerDTO));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static BigDecimal price(ThreadLocalRandom random) {
+        return BigDecimal.valueOf(random.nextLong(150, 2500), 2);
+    }
+
+    private void report(Map<Operation, OperationStats> stats, OperationStats total) {
+        StringBuilder report = new StringBuilder(String.format("%n%-9s %10s %9s %9s %9s %9s %8s %8s%n",
+                "operation", "requests", "req/s", "p50 ms", "p99 ms", "max ms", "errors", "rate"));
+
+        stats.values().forEach(operationStats -> report.append(row(operationStats)));
+        report.append(row(total));
+
+        stats.values().stream()
+                .filter(operationStats -> operationStats.errors > 0)
+                .forEach(operationStats -> report.append(String.format("%s errors: %s%n",
+                        operationStats.operation, operationStats.errorsByCause)));
+
+        log.info("Load test results{}", report);
+    }
+
+    private String row(OperationStats stats) {
+        return String.format("%-9s %10d %9.1f %9.2f %9.2f %9.2f %8d %7.2f%%%n",
+                stats.operation != null ? stats.operation : "total", stats.count(), throughput(stats),
+                millis(stats.latencies.getValueAtPercentile(50)), millis(stats.latencies.getValueAtPercentile(99)),
+                millis(stats.latencies.getMaxValue()), stats.errors, 100 * stats.errorRate());
+    }
+
+    private void checkThresholds(OperationStats total) {
+        List<String> violations = new ArrayList<>();
+
+        if (throughput(total) < minThroughput) {
+            violations.add(String.format("throughput %.1f req/s below loadtest.min-throughput %.1f",
+                    throughput(total), minThroughput));
+        }
+        if (total.latencies.getValueAtPercentile(99) > maxP99.toNanos()) {
+            violations.add(String.format("p99 %.2f ms above loadtest.max-p99 %d ms",
+                    millis(total.latencies.getValueAtPercentile(99)), maxP99.toMillis()));
+        }
+        if (total.errorRate() > maxErrorRate) {
+            violations.add(String.format("error rate %.4f above loadtest.max-error-rate %.4f",
+                    total.errorRate(), maxErrorRate));
+        }
+
+        if (!violations.isEmpty()) {
+            fail(String.join(", ", violations));
+        }
+    }
+
+    private double throughput(OperationStats stats) {
+        return stats.count() / (duration.toNanos() / 1e9);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    // latencies in nanoseconds, 3 significant digits; one per operation and worker, merged at the end
+    static class OperationStats {
+        private final Operation operation;
+        private final Histogram latencies = new Histogram(3);
+        private final Map<String, Long> errorsByCause = new TreeMap<>();
+        private long errors;
+
+        OperationStats(Operation operation) {
+            this.operation = operation;
+        }
+
+        void record(long latency, String error) {
+            latencies.recordValue(latency);
+
+            if (error != null) {
+                errors++;
+                errorsByCause.merge(error, 1L, Long::sum);
+            }
+        }
+
+        void add(OperationStats other) {
+            latencies.add(other.latencies);
+            errors += other.errors;
+            other.errorsByCause.forEach((cause, count) -> errorsByCause.merge(cause, count, Long::sum));
+        }
+
+        long count() {
+            return latencies.getTotalCount();
+        }
+
+        double errorRate() {
+            return count() > 0 ? (double) errors / count() : 0;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.eigenbaumarkt.restdocsexample.bootstrap;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.data.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Beer.id used to live in a varchar column. Hibernate always bound the id as 16 bytes, which H2 stored as
+// 32 hex digits, so an old column keeps working as it is (compat mode, run with ddl-auto=none or validate
+// switched off). With beer.id.migrate-varchar=true the column is converted to binary(16) in place on startup,
+// before the EntityManagerFactory (and with it anything serving requests) is created.
+@Slf4j
+@Component
+public class BeerIdColumnMigration implements InitializingBean {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean migrate;
+
+    public BeerIdColumnMigration(JdbcTemplate jdbcTemplate, @Value("${beer.id.migrate-varchar:false}") boolean migrate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.migrate = migrate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        List<String> types = jdbcTemplate.queryForList("select type_name from information_schema.columns "
+                + "where table_name = 'BEER' and column_name = 'ID'", String.class);
+
+        if (types.isEmpty() || !types.get(0).startsWith("VARCHAR")) {
+            return;
+        }
+
+        if (!migrate) {
+            log.warn("Beer.id is still stored as varchar, set beer.id.migrate-varchar=true to convert it to binary(16)");
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+
+        // ids written as canonical strings (with dashes) become plain hex first, H2 converts hex to binary
+        jdbcTemplate.update("update beer set id = replace(id, '-', '') where length(id) = 36");
+        jdbcTemplate.execute("alter table beer alter column id binary(16) not null");
+
+        log.info("Converted Beer.id from varchar to binary(16) in {} ms", System.currentTimeMillis() - start);
+    }
+
+    // the way Spring Boot runs Flyway first: Hibernate validates or updates the schema when it starts
+    @Component
+    static class EntityManagerFactoryDependsOnMigration extends EntityManagerFactoryDependsOnPostProcessor {
+
+        EntityManagerFactoryDependsOnMigration() {
+            super(BeerIdColumnMigration.class);
+        }
+    }
+}
@@ -1,48 +1,172 @@
 package com.eigenbaumarkt.restdocsexample.bootstrap;
 
-import com.eigenbaumarkt.restdocsexample.domain.Beer;
-import com.eigenbaumarkt.restdocsexample.repositories.BeerRepository;
+import com.eigenbaumarkt.restdocsexample.domain.TimeOrderedUUIDGenerator;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerStyleEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+// synthetic catalog for load tests, off by default: beer.seed.count=1000000 fills an empty beer table with that
+// many beers. The rows go in as plain JDBC batches, one transaction per batch, instead of one save() (and one
+// Hibernate flush) per beer; Beer.id stays time-ordered and the upc unique (beer.seed.first-upc counting up).
+// H2 maintains every index row by row, so the secondary indexes are dropped for the load and built once afterwards.
+@Slf4j
+@Order(0)
+@Component
 public class BeerLoader implements CommandLineRunner {
 
-    private final BeerRepository beerRepository;
+    private static final String INSERT = "insert into beer (id, version, created_date, last_modified_date, beer_name, "
+            + "beer_style, upc, price, min_on_hand, quantity_to_brew, quantity_on_hand) "
+            + "values (?, 0, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-    public BeerLoader(BeerRepository beerRepository) {
-        this.beerRepository = beerRepository;
+    private static final String[] BREWERIES = {"Mönchsambacher", "Schlenkerla", "Weihenstephaner", "Ayinger",
+            "Augustiner", "Tegernseer", "Andechser", "Kloster Kreuzberg", "Rittmayer", "Mahrs", "Keesmann", "Spezial",
+            "Knoblach", "Hummel", "Griess", "Drei Kronen", "Zehendner", "Löwenbräu Buttenheim", "Fässla", "Greif"};
+    private static final String[] KINDS = {"Lager", "Pils", "Weizen", "Hefeweizen", "Dunkel", "Helles", "Kellerbier",
+            "Märzen", "Bock", "Doppelbock", "Rauchbier", "Zwickel", "Export", "Landbier", "Festbier", "Ungespundet"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int count;
+    private final int batchSize;
+    private final BeerStyleEnum[] styles;
+    private final long minPriceCents;
+    private final long maxPriceCents;
+    private final long firstUpc;
+    private final long randomSeed;
+
+    public BeerLoader(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                      @Value("${beer.seed.count:0}") int count,
+                      @Value("${beer.seed.batch-size:5000}") int batchSize,
+                      @Value("${beer.seed.styles:}") String styles,
+                      @Value("${beer.seed.min-price:1.50}") BigDecimal minPrice,
+                      @Value("${beer.seed.max-price:25.00}") BigDecimal maxPrice,
+                      @Value("${beer.seed.first-upc:700000000000}") long firstUpc,
+                      @Value("${beer.seed.random-seed:42}") long randomSeed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.count = count;
+        this.batchSize = batchSize;
+        this.styles = WeightedTable.of(BeerStyleEnum.class, styles);
+        this.minPriceCents = minPrice.movePointRight(2).longValueExact();
+        this.maxPriceCents = maxPrice.movePointRight(2).longValueExact();
+        this.firstUpc = firstUpc;
+        this.randomSeed = randomSeed;
+
+        if (this.styles.length == 0) {
+            throw new IllegalArgumentException("beer.seed.styles has no style with a weight above 0");
+        }
+        if (minPriceCents > maxPriceCents) {
+            throw new IllegalArgumentException("beer.seed.min-price is above beer.seed.max-price");
+        }
     }
 
     @Override
-    public void run(String... args) throws Exception {
+    public void run(String... args) {
+        if (count <= 0) {
+            return;
+        }
+
+        Long existing = jdbcTemplate.queryForObject("select count(*) from beer", Long.class);
+        if (existing != null && existing > 0) {
+            log.info("Not seeding {} beers, the beer table already has {}", count, existing);
+            return;
+        }
+
+        List<Map<String, Object>> indexes = jdbcTemplate.queryForList("select distinct index_name, sql "
+                + "from information_schema.indexes where table_name = 'BEER' and non_unique and not primary_key");
+        indexes.forEach(index -> jdbcTemplate.execute("drop index " + index.get("INDEX_NAME")));
+
+        long start = System.nanoTime();
 
+        try {
+            insertBeers(start);
+        } finally {
+            long indexStart = System.nanoTime();
+            indexes.forEach(index -> jdbcTemplate.execute((String) index.get("SQL")));
+
+            log.info("Rebuilt {} indexes of the beer table in {} ms", indexes.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - indexStart));
+        }
+
+        long elapsed = System.nanoTime() - start;
+        log.info("Seeded {} beers in {} ms, {} rows/s", count, TimeUnit.NANOSECONDS.toMillis(elapsed), rate(count, elapsed));
     }
 
-    private void loadBeerObjects() {
-
-        if(beerRepository.count() == 0) {
-
-            beerRepository.save(Beer.builder()
-                    .beerName("Mönchsambacher Lager")
-                    .beerStyle("Lagerbier")
-                    .quantityToBrew(200)
-                    .minOnHand(12)
-                    .upc(1900024312001L)
-                    .price(new BigDecimal("12.95"))
-                    .build());
-
-            beerRepository.save(Beer.builder()
-                    .beerName("Mönchsambacher Weizen")
-                    .beerStyle("Hefeweißbier")
-                    .quantityToBrew(350)
-                    .minOnHand(24)
-                    .upc(1900024312002L)
-                    .price(new BigDecimal("14.95"))
-                    .build());
+    private void insertBeers(long start) {
+        SplittableRandom random = new SplittableRandom(randomSeed);
+        long now = System.currentTimeMillis();
+        long lastLog = start;
+
+        for (int offset = 0; offset < count; offset += batchSize) {
+            int from = offset;
+            int size = Math.min(batchSize, count - offset);
+
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            setBeer(ps, from + i, random, now);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return size;
+                        }
+                    }));
+
+            long current = System.nanoTime();
+            if (current - lastLog > TimeUnit.SECONDS.toNanos(5)) {
+                log.info("Seeded {} of {} beers, {} rows/s", from + size, count, rate(from + size, current - start));
+                lastLog = current;
+            }
         }
+    }
 
+    // created over the past year, in order of the time-ordered ids
+    private void setBeer(PreparedStatement ps, int i, SplittableRandom random, long now) throws SQLException {
+        BeerStyleEnum style = styles[random.nextInt(styles.length)];
+        Timestamp created = new Timestamp(now - TimeUnit.DAYS.toMillis(365) * (count - i) / count);
 
+        ps.setBytes(1, bytes(TimeOrderedUUIDGenerator.timeOrderedUUID()));
+        ps.setTimestamp(2, created);
+        ps.setTimestamp(3, created);
+        ps.setString(4, BREWERIES[random.nextInt(BREWERIES.length)] + " " + KINDS[random.nextInt(KINDS.length)]
+                + " " + (1 + random.nextInt(999)));
+        ps.setString(5, style.name());
+        ps.setLong(6, firstUpc + i);
+        ps.setBigDecimal(7, BigDecimal.valueOf(random.nextLong(minPriceCents, maxPriceCents + 1), 2));
+        ps.setInt(8, 12 * (1 + random.nextInt(4)));
+        ps.setInt(9, 100 * (1 + random.nextInt(10)));
+        ps.setInt(10, random.nextInt(500));
     }
 
+    private static long rate(long rows, long nanos) {
+        return nanos > 0 ? rows * TimeUnit.SECONDS.toNanos(1) / nanos : rows;
+    }
+
+    // Beer.id is stored as binary(16)
+    private static byte[] bytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
 }
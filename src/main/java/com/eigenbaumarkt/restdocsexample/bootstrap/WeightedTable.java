@@ -0,0 +1,33 @@
+package com.eigenbaumarkt.restdocsexample.bootstrap;
+
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+// "LAGER:40,PILSNER:30,HELLES:30" repeats every constant by its weight (1 if left out), so a uniform pick from
+// the table follows the distribution; empty means all constants equally often. Used by BeerLoader for the styles
+// and by the load test for its operation mix
+public final class WeightedTable {
+
+    private WeightedTable() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E extends Enum<E>> E[] of(Class<E> type, String weights) {
+        if (!StringUtils.hasText(weights)) {
+            return type.getEnumConstants();
+        }
+
+        return Arrays.stream(StringUtils.commaDelimitedListToStringArray(weights))
+                .map(String::trim)
+                .flatMap(entry -> {
+                    String[] nameAndWeight = entry.split(":");
+                    int weight = nameAndWeight.length > 1 ? Integer.parseInt(nameAndWeight[1].trim()) : 1;
+                    E constant = Enum.valueOf(type, nameAndWeight[0].trim());
+
+                    return Arrays.stream((E[]) Array.newInstance(type, weight)).map(unused -> constant);
+                })
+                .toArray(size -> (E[]) Array.newInstance(type, size));
+    }
+}
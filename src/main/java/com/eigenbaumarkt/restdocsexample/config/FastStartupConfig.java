@@ -0,0 +1,48 @@
+package com.eigenbaumarkt.restdocsexample.config;
+
+import com.eigenbaumarkt.restdocsexample.services.BeerService;
+import com.eigenbaumarkt.restdocsexample.web.controller.BeerController;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+// the fast-startup profile (application-fast-startup.properties) creates beans lazily, except the beer API:
+// BeerController and everything it depends on are created during startup and exercised once, so the first
+// request does not pay for Hibernate, MapStruct and Jackson getting ready
+@Slf4j
+@Profile("fast-startup")
+@Configuration(proxyBeanMethods = false)
+public class FastStartupConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter beerApiLazyInitializationExcludeFilter() {
+        return LazyInitializationExcludeFilter.forBeanTypes(BeerController.class);
+    }
+
+    // Hibernate boots on another thread while the rest of the context (Tomcat, Spring MVC) is set up
+    @Bean
+    EntityManagerFactoryBuilderCustomizer entityManagerFactoryBootstrapExecutorCustomizer(
+            @Qualifier("applicationTaskExecutor") AsyncTaskExecutor applicationTaskExecutor) {
+        return builder -> builder.setBootstrapExecutor(applicationTaskExecutor);
+    }
+
+    // runs before the application reports itself ready; a page of the listing goes through the repository,
+    // the mapper and Jackson without touching the cache of single beers
+    @Bean
+    ApplicationRunner beerApiWarmUp(BeerService beerService, ObjectMapper objectMapper) {
+        return args -> {
+            long start = System.nanoTime();
+
+            objectMapper.writeValueAsBytes(beerService.listBeers(0, 1, false));
+
+            log.info("Warmed up the beer API in {} ms", (System.nanoTime() - start) / 1_000_000);
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package com.eigenbaumarkt.restdocsexample.config;
+
+import com.eigenbaumarkt.restdocsexample.repositories.BeerRepository;
+import com.eigenbaumarkt.restdocsexample.repositories.ReactiveBeerRepository;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.data.repository.config.BootstrapMode;
+
+// JPA would try to implement ReactiveBeerRepository as well and fail, it is left to R2DBC
+@Configuration
+public class JpaConfig {
+
+    @Profile("!fast-startup")
+    @Configuration
+    @EnableJpaRepositories(basePackageClasses = BeerRepository.class,
+            excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ReactiveBeerRepository.class))
+    static class DefaultBootstrap {
+    }
+
+    // the repositories are initialized at the end of the context refresh instead of when first injected, so the
+    // EntityManagerFactory can be built in the background meanwhile (see FastStartupConfig)
+    @Profile("fast-startup")
+    @Configuration
+    @EnableJpaRepositories(basePackageClasses = BeerRepository.class, bootstrapMode = BootstrapMode.DEFERRED,
+            excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ReactiveBeerRepository.class))
+    static class DeferredBootstrap {
+    }
+}
@@ -0,0 +1,98 @@
+package com.eigenbaumarkt.restdocsexample.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// the reactive profile serves the beer API with WebFlux on Netty and reads and writes beers over R2DBC
+@Profile("reactive")
+@Configuration
+public class ReactiveConfig {
+
+    // Spring Boot backs off from the JDBC DataSource as soon as there is an R2DBC ConnectionFactory, but JPA
+    // still creates the schema: both drivers open the same in-memory database
+    @Bean
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // Tomcat would be picked first, it is on the classpath for the servlet API
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    // Beer keeps the types Hibernate maps: java.sql.Timestamp and the UUID in a binary(16) column
+    @Bean
+    public R2dbcCustomConversions r2dbcCustomConversions() {
+        return new R2dbcCustomConversions(List.of(TimestampToLocalDateTimeConverter.INSTANCE,
+                LocalDateTimeToTimestampConverter.INSTANCE, UUIDToBytesConverter.INSTANCE,
+                BytesToUUIDConverter.INSTANCE));
+    }
+
+    @WritingConverter
+    enum TimestampToLocalDateTimeConverter implements Converter<Timestamp, LocalDateTime> {
+        INSTANCE;
+
+        @Override
+        public LocalDateTime convert(Timestamp source) {
+            return source.toLocalDateTime();
+        }
+    }
+
+    @ReadingConverter
+    enum LocalDateTimeToTimestampConverter implements Converter<LocalDateTime, Timestamp> {
+        INSTANCE;
+
+        @Override
+        public Timestamp convert(LocalDateTime source) {
+            return Timestamp.valueOf(source);
+        }
+    }
+
+    @WritingConverter
+    enum UUIDToBytesConverter implements Converter<UUID, byte[]> {
+        INSTANCE;
+
+        @Override
+        public byte[] convert(UUID source) {
+            return ByteBuffer.allocate(16)
+                    .putLong(source.getMostSignificantBits())
+                    .putLong(source.getLeastSignificantBits())
+                    .array();
+        }
+    }
+
+    @ReadingConverter
+    enum BytesToUUIDConverter implements Converter<byte[], UUID> {
+        INSTANCE;
+
+        @Override
+        public UUID convert(byte[] source) {
+            ByteBuffer buffer = ByteBuffer.wrap(source);
+
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.eigenbaumarkt.restdocsexample.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.sql.DataSource;
+import java.sql.ResultSetMetaData;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// replication between two in-memory H2 databases for the replica-h2 profile: the replica gets the schema Hibernate
+// created in the primary, the rows of the primary's beer table are read over JDBC and merged into the replica's copy
+// every interval, so reads from the replica lag behind the primary like they would behind a real replica.
+// The whole table is merged each time, inventory adjustments do not change lastModifiedDate. Not a linked table:
+// its embedded session to the primary is opened under H2 locks that Hikari also takes, startup could deadlock
+@Slf4j
+public class H2ReplicaStandIn implements CommandLineRunner, Ordered, DisposableBean {
+
+    private static final int MERGE_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final Duration interval;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("h2-replication-"));
+
+    public H2ReplicaStandIn(DataSource primary, DataSource replica, Duration interval) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.interval = interval;
+    }
+
+    // right after BeerLoader, so the replica has the seeded beers before anything reads them
+    @Override
+    public int getOrder() {
+        return 1;
+    }
+
+    @Override
+    public void run(String... args) {
+        List<String> schema = primary.queryForList("script nodata", String.class);
+
+        schema.stream()
+                .filter(statement -> !statement.startsWith("CREATE USER"))
+                .forEach(replica::execute);
+
+        replicate();
+
+        scheduler.scheduleWithFixedDelay(this::replicateLogged, interval.toNanos(), interval.toNanos(),
+                TimeUnit.NANOSECONDS);
+
+        log.info("Replicating the primary to the replica every {}", interval);
+    }
+
+    // the rows of the primary as they are now, rows inserted during the merge come with the next one;
+    // merged in JDBC batches while they are read, returns the number of rows merged
+    public int replicate() {
+        return primary.query("select * from beer", resultSet -> {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            int columnCount = metaData.getColumnCount();
+            List<String> columns = new ArrayList<>(columnCount);
+
+            for (int i = 1; i <= columnCount; i++) {
+                columns.add(metaData.getColumnName(i));
+            }
+
+            String merge = "merge into beer(" + String.join(", ", columns) + ") key(id) values ("
+                    + String.join(", ", Collections.nCopies(columnCount, "?")) + ")";
+            List<Object[]> rows = new ArrayList<>(MERGE_BATCH_SIZE);
+            int merged = 0;
+
+            while (resultSet.next()) {
+                Object[] row = new Object[columnCount];
+
+                for (int i = 0; i < columnCount; i++) {
+                    row[i] = resultSet.getObject(i + 1);
+                }
+
+                rows.add(row);
+
+                if (rows.size() == MERGE_BATCH_SIZE) {
+                    merged += merge(merge, rows);
+                }
+            }
+
+            return merged + merge(merge, rows);
+        });
+    }
+
+    private int merge(String merge, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        replica.batchUpdate(merge, rows);
+        int merged = rows.size();
+        rows.clear();
+
+        return merged;
+    }
+
+    private void replicateLogged() {
+        try {
+            replicate();
+        } catch (RuntimeException e) {
+            log.warn("Replication to the replica failed, trying again in {}", interval, e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,23 @@
+package com.eigenbaumarkt.restdocsexample.datasource;
+
+// reads of the thread it is bound to go to the primary, even in read-only transactions; bound for requests by
+// ReadYourWritesInterceptor, DbBulkhead hands it over to its own threads
+public final class PrimaryPin {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private PrimaryPin() {
+    }
+
+    public static boolean isPinned() {
+        return PINNED.get() != null;
+    }
+
+    public static void pin() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    public static void unpin() {
+        PINNED.remove();
+    }
+}
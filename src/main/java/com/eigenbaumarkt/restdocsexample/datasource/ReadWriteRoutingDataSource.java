@@ -0,0 +1,29 @@
+package com.eigenbaumarkt.restdocsexample.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// connections for read-only transactions come from the replica unless the thread is pinned to the primary,
+// all others from the primary; needs a LazyConnectionDataSourceProxy in front, JPA asks for the connection
+// before the transaction is marked read-only
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route {
+        PRIMARY, REPLICA
+    }
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !PrimaryPin.isPinned()
+                ? Route.REPLICA : Route.PRIMARY;
+    }
+}
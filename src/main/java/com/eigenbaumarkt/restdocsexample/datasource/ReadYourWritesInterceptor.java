@@ -0,0 +1,88 @@
+package com.eigenbaumarkt.restdocsexample.datasource;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.Set;
+
+// a client reads its own writes: a request that writes reads from the primary as well (the replica may not have
+// the version it is about to change), and marks its client with a cookie holding the time of the write; the
+// client's reads within the read-your-writes window go to the primary, later ones to the replica again
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String LAST_WRITE_COOKIE = "beer-last-write";
+
+    // the decision survives the async dispatch of a request
+    private static final String PINNED_ATTRIBUTE = PrimaryPin.class.getName();
+
+    private static final Set<String> READ_METHODS = Set.of(HttpMethod.GET.name(), HttpMethod.HEAD.name(),
+            HttpMethod.OPTIONS.name());
+
+    private final Duration window;
+
+    public ReadYourWritesInterceptor(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Boolean pinned = (Boolean) request.getAttribute(PINNED_ATTRIBUTE);
+
+        if (pinned == null) {
+            long now = System.currentTimeMillis();
+
+            if (READ_METHODS.contains(request.getMethod())) {
+                pinned = lastWrite(request) > now - window.toMillis();
+            } else {
+                Cookie cookie = new Cookie(LAST_WRITE_COOKIE, Long.toString(now));
+                cookie.setPath("/");
+                cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+                cookie.setHttpOnly(true);
+                response.addCookie(cookie);
+
+                pinned = true;
+            }
+
+            request.setAttribute(PINNED_ATTRIBUTE, pinned);
+        }
+
+        if (pinned) {
+            PrimaryPin.pin();
+        }
+
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        PrimaryPin.unpin();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        PrimaryPin.unpin();
+    }
+
+    // 0 without a (valid) cookie
+    private static long lastWrite(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return 0;
+        }
+
+        for (Cookie cookie : request.getCookies()) {
+            if (LAST_WRITE_COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+
+        return 0;
+    }
+}
@@ -0,0 +1,73 @@
+package com.eigenbaumarkt.restdocsexample.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.handler.MappedInterceptor;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// the replica profile reads from a replica in read-only transactions (single beers, listings, search, export) and
+// writes to the primary, each with a pool of its own: spring.datasource(.hikari) for the primary,
+// beer.datasource.replica(.hikari) for the replica. A client reading right after its own write reads from the
+// primary, see ReadYourWritesInterceptor. replica-h2 runs both as in-memory H2 databases, see H2ReplicaStandIn
+@Profile("replica")
+@Configuration
+public class ReplicaConfig {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("beer.datasource.replica")
+    public DataSourceProperties replicaDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("beer.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(@Qualifier("replicaDataSourceProperties") DataSourceProperties replicaDataSourceProperties) {
+        return replicaDataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // what JPA, JdbcTemplate and the transaction manager use
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource));
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public MappedInterceptor readYourWritesInterceptor(@Value("${beer.datasource.replica.read-your-writes-window:5s}") Duration window) {
+        return new MappedInterceptor(null, new ReadYourWritesInterceptor(window));
+    }
+
+    @Bean
+    @Profile("replica-h2")
+    public H2ReplicaStandIn h2ReplicaStandIn(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                             @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                             @Value("${beer.datasource.replica.stand-in.interval:1s}") Duration interval) {
+        return new H2ReplicaStandIn(primaryDataSource, replicaDataSource, interval);
+    }
+}
@@ -3,6 +3,7 @@ package com.eigenbaumarkt.restdocsexample.domain;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Type;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import javax.persistence.*;
@@ -16,12 +17,24 @@ import java.util.UUID;
 @AllArgsConstructor
 @Builder
 @Entity
+// the keyset paging of the beer listing (see BeerRepository.findAllAfter) and the filters of the beer search
+@Table(indexes = {
+        @Index(name = "ix_beer_created_date_id", columnList = "createdDate, id"),
+        @Index(name = "ix_beer_beer_name", columnList = "beerName"),
+        @Index(name = "ix_beer_beer_style_price", columnList = "beerStyle, price"),
+        @Index(name = "ix_beer_price", columnList = "price")
+})
 public class Beer {
 
+    // the Spring Data @Id is for the R2DBC mapping of the reactive profile, Hibernate ignores it
     @Id
+    @org.springframework.data.annotation.Id
     @GeneratedValue(generator = "UUID")
-    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
-    @Column(length = 36, columnDefinition = "varchar", updatable = false, nullable = false)
+    @GenericGenerator(name = "UUID", strategy = "com.eigenbaumarkt.restdocsexample.domain.TimeOrderedUUIDGenerator")
+    // the raw 16 bytes instead of a string: a key less than half the size and byte-wise comparisons,
+    // see BeerIdColumnMigration for databases still having the old varchar column
+    @Type(type = "uuid-binary")
+    @Column(length = 16, columnDefinition = "binary(16)", updatable = false, nullable = false)
     private UUID id;
 
     @Version
@@ -45,4 +58,9 @@ public class Beer {
     private Integer minOnHand;
     private Integer quantityToBrew;
 
+    // written on insert and afterwards only by the additive updates of BeerInventoryRepository, so saving a
+    // loaded beer never overwrites adjustments made in the meantime; not covered by the version
+    @Column(updatable = false)
+    private Integer quantityOnHand;
+
 }
@@ -0,0 +1,45 @@
+package com.eigenbaumarkt.restdocsexample.domain;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+// generates UUIDs whose first 48 bits are the creation time in milliseconds (the UUIDv7 layout), so new rows
+// are appended to the end of the primary key index instead of being spread over all of its pages;
+// set beer.id.time-ordered=false in the JPA properties for plain random (version 4) UUIDs
+public class TimeOrderedUUIDGenerator implements IdentifierGenerator, Configurable {
+
+    public static final String TIME_ORDERED = "beer.id.time-ordered";
+
+    private boolean timeOrdered = true;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+        timeOrdered = serviceRegistry.getService(ConfigurationService.class)
+                .getSetting(TIME_ORDERED, StandardConverters.BOOLEAN, true);
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        return timeOrdered ? timeOrderedUUID() : UUID.randomUUID();
+    }
+
+    public static UUID timeOrderedUUID() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long mostSigBits = (System.currentTimeMillis() << 16) | 0x7000L | (random.nextLong() & 0x0FFFL);
+        long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
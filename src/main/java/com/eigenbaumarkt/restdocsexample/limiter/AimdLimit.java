@@ -0,0 +1,101 @@
+package com.eigenbaumarkt.restdocsexample.limiter;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// a concurrency limit found by additive increase, multiplicative decrease: it grows by one for every request
+// answered within the latency threshold while at least half of the limit was in use, and shrinks by the backoff
+// ratio when a request was slower or failed with a 5xx, at most once per latency threshold (the requests in flight
+// when the database slowed down all come back slow, that is one overload, not one per request). Requests over the
+// limit are not queued, the caller rejects them right away
+public class AimdLimit {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // increased without a lock, every fast request does so
+    private final AtomicInteger limit = new AtomicInteger(20);
+    private int minLimit = 1;
+    private int maxLimit = 200;
+    private long latencyThresholdNanos = Duration.ofMillis(500).toNanos();
+    private double backoffRatio = 0.9;
+    // a threshold ago, so an overload right after the start is not ignored; guarded by this
+    private long lastDecrease = System.nanoTime() - latencyThresholdNanos;
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+
+            if (current >= limit.get()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // once for every successful tryAcquire
+    public void release(long latencyNanos, boolean failed) {
+        // in flight with this request
+        int current = inFlight.getAndDecrement();
+
+        if (failed || latencyNanos > latencyThresholdNanos) {
+            decrease();
+        } else if (current * 2 >= limit.get()) {
+            increase();
+        }
+    }
+
+    private synchronized void decrease() {
+        long now = System.nanoTime();
+
+        if (now - lastDecrease >= latencyThresholdNanos) {
+            // increases may still come in concurrently
+            limit.updateAndGet(current -> Math.max(minLimit, (int) (current * backoffRatio)));
+            lastDecrease = now;
+        }
+    }
+
+    private void increase() {
+        while (true) {
+            int current = limit.get();
+
+            if (current >= maxLimit || limit.compareAndSet(current, current + 1)) {
+                return;
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    // bound from beer.limiter.read.* and beer.limiter.write.*, see LimiterConfig
+
+    public void setInitialLimit(int initialLimit) {
+        this.limit.set(initialLimit);
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public void setLatencyThreshold(Duration latencyThreshold) {
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        synchronized (this) {
+            this.lastDecrease = System.nanoTime() - latencyThresholdNanos;
+        }
+    }
+
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+}
@@ -0,0 +1,98 @@
+package com.eigenbaumarkt.restdocsexample.limiter;
+
+import com.eigenbaumarkt.restdocsexample.web.controller.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+// sheds load in front of the beer API: a request over the limit of its kind (reads are GET and HEAD, writes the
+// rest) fails right away with 503 and Retry-After instead of waiting in Tomcat's queue for a database that is
+// already too slow; the latency of the requests let in moves the limits
+public class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor {
+
+    // the permit and start time survive the async dispatch of a request
+    private static final String PERMIT_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".permit";
+
+    private final Kind read;
+    private final Kind write;
+
+    public ConcurrencyLimitInterceptor(AimdLimit readLimit, AimdLimit writeLimit, MeterRegistry meterRegistry) {
+        this.read = new Kind("read", readLimit, meterRegistry);
+        this.write = new Kind("write", writeLimit, meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+            return true;
+        }
+
+        Kind kind = HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod())
+                ? read : write;
+
+        if (!kind.limit.tryAcquire()) {
+            kind.rejected.increment();
+            throw new ServiceUnavailableException("Over the concurrency limit of " + kind.limit.getLimit()
+                    + " " + kind.name + "s");
+        }
+
+        kind.accepted.increment();
+        request.setAttribute(PERMIT_ATTRIBUTE, new Permit(kind, System.nanoTime()));
+
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Permit permit = (Permit) request.getAttribute(PERMIT_ATTRIBUTE);
+
+        if (permit == null) {
+            return;
+        }
+
+        request.removeAttribute(PERMIT_ATTRIBUTE);
+        permit.kind.limit.release(System.nanoTime() - permit.start, ex != null || response.getStatus() >= 500);
+    }
+
+    private static final class Kind {
+
+        private final String name;
+        private final AimdLimit limit;
+        private final Counter accepted;
+        private final Counter rejected;
+
+        private Kind(String name, AimdLimit limit, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.limit = limit;
+            this.accepted = Counter.builder("beer.limiter.requests")
+                    .tag("kind", name).tag("outcome", "accepted")
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("beer.limiter.requests")
+                    .tag("kind", name).tag("outcome", "rejected")
+                    .register(meterRegistry);
+
+            Gauge.builder("beer.limiter.in-flight", limit, AimdLimit::getInFlight)
+                    .tag("kind", name)
+                    .register(meterRegistry);
+            Gauge.builder("beer.limiter.limit", limit, AimdLimit::getLimit)
+                    .tag("kind", name)
+                    .register(meterRegistry);
+        }
+    }
+
+    private static final class Permit {
+
+        private final Kind kind;
+        private final long start;
+
+        private Permit(Kind kind, long start) {
+            this.kind = kind;
+            this.start = start;
+        }
+    }
+}
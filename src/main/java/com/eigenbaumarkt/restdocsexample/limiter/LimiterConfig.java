@@ -0,0 +1,43 @@
+package com.eigenbaumarkt.restdocsexample.limiter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.handler.MappedInterceptor;
+
+// adaptive concurrency limits for the servlet beer API, one for reads and one for writes, see AimdLimit;
+// metrics: beer.limiter.requests (accepted/rejected), beer.limiter.in-flight and beer.limiter.limit per kind
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "beer.limiter.enabled", havingValue = "true", matchIfMissing = true)
+public class LimiterConfig {
+
+    @Bean
+    @ConfigurationProperties("beer.limiter.read")
+    public AimdLimit readLimit() {
+        return new AimdLimit();
+    }
+
+    @Bean
+    @ConfigurationProperties("beer.limiter.write")
+    public AimdLimit writeLimit() {
+        return new AimdLimit();
+    }
+
+    // not the export, the change feed and the batches: the export and the feed stream for minutes and a batch
+    // takes as long as it is big, their latencies would drag the limits down without the database being any slower
+    @Bean
+    public MappedInterceptor concurrencyLimitInterceptor(@Qualifier("readLimit") AimdLimit readLimit,
+                                                         @Qualifier("writeLimit") AimdLimit writeLimit,
+                                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        return new MappedInterceptor(new String[]{"/api/v1/beer/**"},
+                new String[]{"/api/v1/beer/export", "/api/v1/beer/changes", "/api/v1/beer/batch"},
+                new ConcurrencyLimitInterceptor(readLimit, writeLimit, meterRegistry.getIfAvailable(SimpleMeterRegistry::new)));
+    }
+}
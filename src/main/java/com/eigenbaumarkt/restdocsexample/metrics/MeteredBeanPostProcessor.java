@@ -0,0 +1,86 @@
+package com.eigenbaumarkt.restdocsexample.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// wraps the beans of one type (BeerMapper, BeerRepository, the Validator) in a proxy timing every call
+// of the type's methods, tagged with the method name and the exception thrown, if any
+public class MeteredBeanPostProcessor implements BeanPostProcessor {
+
+    private final Class<?> type;
+    private final String metricName;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public MeteredBeanPostProcessor(Class<?> type, String metricName, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.type = type;
+        this.metricName = metricName;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!type.isInstance(bean)) {
+            return bean;
+        }
+
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setTarget(bean);
+        proxyFactory.addInterface(type);
+        proxyFactory.addAdvice(new TimingInterceptor());
+
+        return proxyFactory.getProxy(type.getClassLoader());
+    }
+
+    private class TimingInterceptor implements MethodInterceptor {
+
+        // the registry is looked up on first use: a post-processor that creates it early would get one without
+        // the configured percentiles and histograms
+        private MeterRegistry registry;
+
+        // the timers by method and by the exception thrown; registering them again on every call would look
+        // the meter up and allocate its tags each time
+        private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+        private final Map<Method, Map<Class<?>, Timer>> exceptionTimers = new ConcurrentHashMap<>();
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            if (registry == null) {
+                registry = meterRegistry.getIfAvailable();
+
+                if (registry == null) {
+                    return invocation.proceed();
+                }
+            }
+
+            Method method = invocation.getMethod();
+            Timer.Sample sample = Timer.start(registry);
+
+            try {
+                Object result = invocation.proceed();
+                sample.stop(timers.computeIfAbsent(method, m -> timer(m, "none")));
+
+                return result;
+            } catch (Throwable e) {
+                sample.stop(exceptionTimers.computeIfAbsent(method, m -> new ConcurrentHashMap<>())
+                        .computeIfAbsent(e.getClass(), exception -> timer(method, exception.getSimpleName())));
+                throw e;
+            }
+        }
+
+        private Timer timer(Method method, String exception) {
+            return Timer.builder(metricName)
+                    .tag("method", method.getName())
+                    .tag("exception", exception)
+                    .register(registry);
+        }
+    }
+}
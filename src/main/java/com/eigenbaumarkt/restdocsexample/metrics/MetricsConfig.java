@@ -0,0 +1,43 @@
+package com.eigenbaumarkt.restdocsexample.metrics;
+
+import com.eigenbaumarkt.restdocsexample.repositories.BeerRepository;
+import com.eigenbaumarkt.restdocsexample.web.mappers.BeerMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.handler.MappedInterceptor;
+
+import javax.validation.Validator;
+
+// hot path metrics next to the http.server.requests latencies: time spent in BeerMapper, validation and
+// BeerRepository, statements and flushes per request
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public static MeteredBeanPostProcessor beerMapperMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new MeteredBeanPostProcessor(BeerMapper.class, "beer.mapper", meterRegistry);
+    }
+
+    @Bean
+    public static MeteredBeanPostProcessor beerRepositoryMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new MeteredBeanPostProcessor(BeerRepository.class, "beer.repository", meterRegistry);
+    }
+
+    // the bean validation of request bodies and batch items
+    @Bean
+    public static MeteredBeanPostProcessor validatorMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new MeteredBeanPostProcessor(Validator.class, "beer.validation", meterRegistry);
+    }
+
+    // picked up by every handler mapping of Spring MVC
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public MappedInterceptor queryCountInterceptor(MeterRegistry meterRegistry,
+                                                   @Value("${beer.metrics.statements-warn-threshold:10}") int statementsWarnThreshold) {
+        return new MappedInterceptor(null, new QueryCountInterceptor(meterRegistry, statementsWarnThreshold));
+    }
+}
@@ -0,0 +1,42 @@
+package com.eigenbaumarkt.restdocsexample.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// the JDBC statements and flushes of one request, counted by QueryCountSessionListener for the thread the
+// count is bound to; DbBulkhead hands it over to its own threads
+public class QueryCount {
+
+    private static final ThreadLocal<QueryCount> CURRENT = new ThreadLocal<>();
+
+    private final AtomicInteger statements = new AtomicInteger();
+    private final AtomicInteger flushes = new AtomicInteger();
+
+    // null outside of a request
+    public static QueryCount current() {
+        return CURRENT.get();
+    }
+
+    public static void bind(QueryCount queryCount) {
+        CURRENT.set(queryCount);
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    void statementExecuted() {
+        statements.incrementAndGet();
+    }
+
+    void flushed() {
+        flushes.incrementAndGet();
+    }
+
+    public int getStatements() {
+        return statements.get();
+    }
+
+    public int getFlushes() {
+        return flushes.get();
+    }
+}
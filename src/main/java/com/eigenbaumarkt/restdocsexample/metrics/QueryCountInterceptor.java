@@ -0,0 +1,74 @@
+package com.eigenbaumarkt.restdocsexample.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+// counts the statements and flushes of every request handled by a controller method and records them per
+// handler; more statements than the threshold are logged, so an N+1 regression shows up right away
+@Slf4j
+public class QueryCountInterceptor implements AsyncHandlerInterceptor {
+
+    // the count survives the async dispatch of a request
+    private static final String QUERY_COUNT_ATTRIBUTE = QueryCount.class.getName();
+
+    private final MeterRegistry meterRegistry;
+    private final int statementsWarnThreshold;
+
+    public QueryCountInterceptor(MeterRegistry meterRegistry, int statementsWarnThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.statementsWarnThreshold = statementsWarnThreshold;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryCount queryCount = (QueryCount) request.getAttribute(QUERY_COUNT_ATTRIBUTE);
+
+        if (queryCount == null) {
+            queryCount = new QueryCount();
+            request.setAttribute(QUERY_COUNT_ATTRIBUTE, queryCount);
+        }
+
+        QueryCount.bind(queryCount);
+
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryCount.unbind();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        QueryCount.unbind();
+
+        QueryCount queryCount = (QueryCount) request.getAttribute(QUERY_COUNT_ATTRIBUTE);
+
+        if (queryCount == null || !(handler instanceof HandlerMethod)) {
+            return;
+        }
+
+        HandlerMethod handlerMethod = (HandlerMethod) handler;
+        String handlerName = handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+
+        DistributionSummary.builder("beer.request.statements")
+                .tag("handler", handlerName)
+                .register(meterRegistry)
+                .record(queryCount.getStatements());
+        DistributionSummary.builder("beer.request.flushes")
+                .tag("handler", handlerName)
+                .register(meterRegistry)
+                .record(queryCount.getFlushes());
+
+        if (queryCount.getStatements() > statementsWarnThreshold) {
+            log.warn("{} {} executed {} statements (threshold {})", request.getMethod(), request.getRequestURI(),
+                    queryCount.getStatements(), statementsWarnThreshold);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.eigenbaumarkt.restdocsexample.metrics;
+
+import org.hibernate.BaseSessionEventListener;
+
+// created by Hibernate for every session, see hibernate.session.events.auto
+public class QueryCountSessionListener extends BaseSessionEventListener {
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        QueryCount queryCount = QueryCount.current();
+
+        if (queryCount != null) {
+            queryCount.statementExecuted();
+        }
+    }
+
+    // a JDBC batch is one round trip
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        jdbcExecuteStatementEnd();
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        QueryCount queryCount = QueryCount.current();
+
+        if (queryCount != null) {
+            queryCount.flushed();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.eigenbaumarkt.restdocsexample.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// quantity_on_hand is only ever changed relative to its current value, in the database:
+// concurrent adjustments add up instead of overwriting each other, and no version check can fail
+@RequiredArgsConstructor
+@Repository
+public class BeerInventoryRepository {
+
+    private static final String ADD = "update beer set quantity_on_hand = coalesce(quantity_on_hand, 0) + ? where id = ?";
+
+    // a withdrawal (negative delta) is only written if the stock covers it
+    private static final String ADJUST = "update beer set quantity_on_hand = coalesce(quantity_on_hand, 0) + ? "
+            + "where id = ? and (? >= 0 or coalesce(quantity_on_hand, 0) + ? >= 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // one transaction and one JDBC batch for all beers; the updated row count per beer, in the order of the
+    // map, 0 for a beer that does not exist (anymore)
+    @Transactional
+    public int[] addToQuantitiesOnHand(Map<UUID, Long> deltas) {
+        List<Object[]> batchArgs = new ArrayList<>(deltas.size());
+        deltas.forEach((beerId, delta) -> batchArgs.add(new Object[]{delta, bytes(beerId)}));
+
+        return jdbcTemplate.batchUpdate(ADD, batchArgs);
+    }
+
+    // the new quantity on hand, null if there is no such beer or it has too little stock
+    @Transactional
+    public Integer adjustQuantityOnHand(UUID beerId, long delta) {
+        byte[] id = bytes(beerId);
+
+        if (jdbcTemplate.update(ADJUST, delta, id, delta, delta) == 0) {
+            return null;
+        }
+
+        // still in the transaction holding the row lock, so this is the quantity our update left behind
+        return jdbcTemplate.queryForObject("select quantity_on_hand from beer where id = ?", Integer.class, id);
+    }
+
+    // Beer.id is stored as binary(16)
+    private static byte[] bytes(UUID beerId) {
+        return ByteBuffer.allocate(16)
+                .putLong(beerId.getMostSignificantBits())
+                .putLong(beerId.getLeastSignificantBits())
+                .array();
+    }
+}
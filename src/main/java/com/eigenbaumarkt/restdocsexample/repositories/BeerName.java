@@ -0,0 +1,15 @@
+package com.eigenbaumarkt.restdocsexample.repositories;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+// projection for BeerNameIndex, only the two columns are read; a class instead of an interface, Spring Data
+// creates a proxy per row for the latter, which does not scale to a million beers
+@Value
+public class BeerName {
+
+    UUID id;
+
+    String beerName;
+}
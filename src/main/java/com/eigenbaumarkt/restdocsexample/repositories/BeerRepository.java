@@ -1,9 +1,65 @@
 package com.eigenbaumarkt.restdocsexample.repositories;
 
 import com.eigenbaumarkt.restdocsexample.domain.Beer;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface BeerRepository extends PagingAndSortingRepository<Beer, UUID> {
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+// JpaSpecificationExecutor: the beer search combines its optional filters as Specifications
+public interface BeerRepository extends PagingAndSortingRepository<Beer, UUID>, JpaSpecificationExecutor<Beer>,
+        BeerRepositoryCustom {
+
+    // offset paging without the count(*) query: Spring Data fetches pageSize + 1 rows to find out about a next page
+    Slice<Beer> findAllBy(Pageable pageable);
+
+    // keyset ("seek") paging on (createdDate, id): the cost of a page does not depend on how deep it is
+    @Query("select b from Beer b where b.createdDate > :createdDate "
+            + "or (b.createdDate = :createdDate and b.id > :id)")
+    Slice<Beer> findAllAfter(@Param("createdDate") Timestamp createdDate, @Param("id") UUID id, Pageable pageable);
+
+    // declared query methods are not transactional by themselves: without a read-only transaction they would not be
+    // routed to the replica (see ReadWriteRoutingDataSource) and take connections of the primary's smaller pool
+    @Transactional(readOnly = true)
+    @Query("select new com.eigenbaumarkt.restdocsexample.repositories.BeerName(b.id, b.beerName) from Beer b")
+    List<BeerName> findAllNamesBy();
+
+    @Transactional(readOnly = true)
+    @Query("select new com.eigenbaumarkt.restdocsexample.repositories.BeerUpc(b.id, b.upc) from Beer b "
+            + "where b.upc is not null")
+    List<BeerUpc> findAllUpcsBy();
+
+    // the unique constraint on upc is backed by an index, which holds the id as well
+    @Transactional(readOnly = true)
+    @Query("select b.id from Beer b where b.upc = :upc")
+    Optional<UUID> findIdByUpc(@Param("upc") Long upc);
+
+    @Transactional(readOnly = true)
+    @Query("select b.version from Beer b where b.id = :id")
+    Optional<Long> findVersionById(@Param("id") UUID id);
+
+    @Transactional(readOnly = true)
+    @Query("select new com.eigenbaumarkt.restdocsexample.repositories.BeerRevision(b.version, b.quantityOnHand) "
+            + "from Beer b where b.id = :id")
+    Optional<BeerRevision> findRevisionById(@Param("id") UUID id);
+
+    // rows are fetched from the database in chunks of the fetch size while the stream is consumed; the stream
+    // has to be closed and consumed inside a transaction, read-only entities skip the dirty-checking snapshot
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select b from Beer b")
+    Stream<Beer> streamAll();
 }
@@ -0,0 +1,16 @@
+package com.eigenbaumarkt.restdocsexample.repositories;
+
+import com.eigenbaumarkt.restdocsexample.domain.Beer;
+
+import java.util.Map;
+import java.util.UUID;
+
+public interface BeerRepositoryCustom {
+
+    // drops the beer from the persistence context, e.g. while streaming through the whole table
+    void detach(Beer beer);
+
+    // one UPDATE of the given attributes (and version, lastModifiedDate) without loading the beer first;
+    // with an expected version only that version is updated, returns the number of updated rows
+    int updateAttributes(UUID id, Long expectedVersion, Map<String, Object> attributes);
+}
@@ -0,0 +1,46 @@
+package com.eigenbaumarkt.restdocsexample.repositories;
+
+import com.eigenbaumarkt.restdocsexample.domain.Beer;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.UUID;
+
+public class BeerRepositoryCustomImpl implements BeerRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void detach(Beer beer) {
+        entityManager.detach(beer);
+    }
+
+    @Transactional
+    @Override
+    public int updateAttributes(UUID id, Long expectedVersion, Map<String, Object> attributes) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Beer> update = cb.createCriteriaUpdate(Beer.class);
+        Root<Beer> beer = update.from(Beer.class);
+
+        attributes.forEach(update::set);
+        // bulk updates bypass @Version and @UpdateTimestamp
+        update.set(beer.<Long>get("version"), cb.sum(beer.<Long>get("version"), 1L));
+        update.set(beer.<Timestamp>get("lastModifiedDate"), new Timestamp(System.currentTimeMillis()));
+
+        Predicate where = cb.equal(beer.get("id"), id);
+        if (expectedVersion != null) {
+            where = cb.and(where, cb.equal(beer.get("version"), expectedVersion));
+        }
+
+        return entityManager.createQuery(update.where(where)).executeUpdate();
+    }
+}
@@ -0,0 +1,12 @@
+package com.eigenbaumarkt.restdocsexample.repositories;
+
+import lombok.Value;
+
+// what the ETag of a beer is derived from, for answering If-None-Match without loading the beer
+@Value
+public class BeerRevision {
+
+    Long version;
+
+    Integer quantityOnHand;
+}
@@ -0,0 +1,14 @@
+package com.eigenbaumarkt.restdocsexample.repositories;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+// projection for BeerUpcIndex, like BeerName
+@Value
+public class BeerUpc {
+
+    UUID id;
+
+    Long upc;
+}
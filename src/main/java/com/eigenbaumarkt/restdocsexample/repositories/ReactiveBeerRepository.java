@@ -0,0 +1,23 @@
+package com.eigenbaumarkt.restdocsexample.repositories;
+
+import com.eigenbaumarkt.restdocsexample.domain.Beer;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// R2DBC access to the beer table of BeerRepository, only used by the reactive profile
+public interface ReactiveBeerRepository extends R2dbcRepository<Beer, UUID>, ReactiveBeerRepositoryCustom {
+
+    // same order as the offset and keyset pages of the servlet API
+    @Query("select * from beer order by created_date, id limit :limit offset :offset")
+    Flux<Beer> findPage(@Param("limit") int limit, @Param("offset") long offset);
+
+    @Query("select * from beer where created_date > :createdDate or (created_date = :createdDate and id > :id) "
+            + "order by created_date, id limit :limit")
+    Flux<Beer> findPageAfter(@Param("createdDate") LocalDateTime createdDate, @Param("id") UUID id,
+                             @Param("limit") int limit);
+}
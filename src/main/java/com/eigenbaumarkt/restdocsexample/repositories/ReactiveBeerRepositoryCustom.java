@@ -0,0 +1,14 @@
+package com.eigenbaumarkt.restdocsexample.repositories;
+
+import com.eigenbaumarkt.restdocsexample.domain.Beer;
+import reactor.core.publisher.Mono;
+
+// Beer.version is only known to Hibernate, R2DBC save() would neither insert a beer with a given id
+// nor check the version
+public interface ReactiveBeerRepositoryCustom {
+
+    Mono<Beer> insert(Beer beer);
+
+    // UPDATE ... WHERE id = ? AND version = ?, the new version is expectedVersion + 1; emits the affected row count
+    Mono<Integer> update(Beer beer, long expectedVersion);
+}
@@ -0,0 +1,42 @@
+package com.eigenbaumarkt.restdocsexample.repositories;
+
+import com.eigenbaumarkt.restdocsexample.domain.Beer;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.core.ReactiveDataAccessStrategy;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.data.relational.core.query.Update;
+import reactor.core.publisher.Mono;
+
+public class ReactiveBeerRepositoryCustomImpl implements ReactiveBeerRepositoryCustom {
+
+    private final R2dbcEntityTemplate template;
+
+    public ReactiveBeerRepositoryCustomImpl(DatabaseClient databaseClient, ReactiveDataAccessStrategy dataAccessStrategy) {
+        this.template = new R2dbcEntityTemplate(databaseClient, dataAccessStrategy);
+    }
+
+    @Override
+    public Mono<Beer> insert(Beer beer) {
+        if (beer.getVersion() == null) {
+            beer.setVersion(0L);
+        }
+
+        return template.insert(beer);
+    }
+
+    @Override
+    public Mono<Integer> update(Beer beer, long expectedVersion) {
+        Query query = Query.query(Criteria.where("id").is(beer.getId()).and("version").is(expectedVersion));
+
+        return template.update(query, Update.update("beerName", beer.getBeerName())
+                .set("beerStyle", beer.getBeerStyle())
+                .set("upc", beer.getUpc())
+                .set("price", beer.getPrice())
+                .set("minOnHand", beer.getMinOnHand())
+                .set("quantityToBrew", beer.getQuantityToBrew())
+                .set("lastModifiedDate", beer.getLastModifiedDate())
+                .set("version", expectedVersion + 1), Beer.class);
+    }
+}
@@ -0,0 +1,15 @@
+package com.eigenbaumarkt.restdocsexample.services;
+
+import com.eigenbaumarkt.restdocsexample.web.model.BeerBatchResult;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerDTO;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public interface BeerBatchService {
+
+    List<BeerBatchResult> saveNewBeers(List<BeerDTO> beerDTOs);
+
+    List<BeerBatchResult> updateBeers(Map<UUID, BeerDTO> beerDTOs);
+}
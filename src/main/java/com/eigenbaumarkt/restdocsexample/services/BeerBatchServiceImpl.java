@@ -0,0 +1,177 @@
+package com.eigenbaumarkt.restdocsexample.services;
+
+import com.eigenbaumarkt.restdocsexample.domain.Beer;
+import com.eigenbaumarkt.restdocsexample.web.mappers.BeerMapper;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerBatchResult;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerBatchResult.Status;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// writes a batch in chunks of beer.batch.chunk-size, each in its own transaction; a chunk that fails on a
+// constraint is rolled back and its items are retried one by one, so only the offending items are reported
+@Slf4j
+@Service
+public class BeerBatchServiceImpl implements BeerBatchService {
+
+    private final BeerBatchWriter beerBatchWriter;
+    private final BeerMapper beerMapper;
+    private final BeerDTOCache beerDTOCache;
+    private final BeerNameIndex beerNameIndex;
+    private final BeerUpcIndex beerUpcIndex;
+    private final Validator validator;
+    private final int chunkSize;
+
+    public BeerBatchServiceImpl(BeerBatchWriter beerBatchWriter, BeerMapper beerMapper, BeerDTOCache beerDTOCache,
+                                BeerNameIndex beerNameIndex, BeerUpcIndex beerUpcIndex, Validator validator,
+                                @Value("${beer.batch.chunk-size:500}") int chunkSize) {
+        this.beerBatchWriter = beerBatchWriter;
+        this.beerMapper = beerMapper;
+        this.beerDTOCache = beerDTOCache;
+        this.beerNameIndex = beerNameIndex;
+        this.beerUpcIndex = beerUpcIndex;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public List<BeerBatchResult> saveNewBeers(List<BeerDTO> beerDTOs) {
+        BeerBatchResult[] results = new BeerBatchResult[beerDTOs.size()];
+        List<Integer> chunk = new ArrayList<>(chunkSize);
+
+        for (int i = 0; i < beerDTOs.size(); i++) {
+            if (isValid(i, null, beerDTOs.get(i), results)) {
+                chunk.add(i);
+            }
+
+            if (chunk.size() == chunkSize || (i == beerDTOs.size() - 1 && !chunk.isEmpty())) {
+                saveChunk(chunk, beerDTOs, results);
+                chunk.clear();
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public List<BeerBatchResult> updateBeers(Map<UUID, BeerDTO> beerDTOs) {
+        BeerBatchResult[] results = new BeerBatchResult[beerDTOs.size()];
+        Map<UUID, Integer> chunk = new LinkedHashMap<>(chunkSize * 2);
+        int i = 0;
+
+        for (Iterator<Map.Entry<UUID, BeerDTO>> it = beerDTOs.entrySet().iterator(); it.hasNext(); i++) {
+            Map.Entry<UUID, BeerDTO> entry = it.next();
+
+            if (isValid(i, entry.getKey(), entry.getValue(), results)) {
+                chunk.put(entry.getKey(), i);
+            }
+
+            if (chunk.size() == chunkSize || (!it.hasNext() && !chunk.isEmpty())) {
+                updateChunk(chunk, beerDTOs, results);
+                chunk.clear();
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    private void saveChunk(List<Integer> chunk, List<BeerDTO> beerDTOs, BeerBatchResult[] results) {
+        try {
+            List<Beer> beers = beerBatchWriter.saveAll(chunk.stream()
+                    .map(i -> beerMapper.BeerDTOToBeer(beerDTOs.get(i)))
+                    .collect(Collectors.toList()));
+
+            for (int j = 0; j < beers.size(); j++) {
+                results[chunk.get(j)] = result(chunk.get(j), beers.get(j), Status.CREATED);
+            }
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Chunk of {} new beers rolled back, retrying one by one", chunk.size(), e);
+
+            // the rolled back entities already carry generated ids, so every retry maps a fresh one
+            for (Integer i : chunk) {
+                try {
+                    Beer beer = beerBatchWriter.saveAll(List.of(beerMapper.BeerDTOToBeer(beerDTOs.get(i)))).get(0);
+                    results[i] = result(i, beer, Status.CREATED);
+                } catch (DataIntegrityViolationException ex) {
+                    results[i] = conflict(i, null, beerDTOs.get(i));
+                }
+            }
+        }
+    }
+
+    private void updateChunk(Map<UUID, Integer> chunk, Map<UUID, BeerDTO> beerDTOs, BeerBatchResult[] results) {
+        try {
+            Map<UUID, BeerDTO> chunkDTOs = new HashMap<>(chunk.size() * 2);
+            chunk.keySet().forEach(id -> chunkDTOs.put(id, beerDTOs.get(id)));
+
+            Map<UUID, Beer> beers = beerBatchWriter.updateAll(chunkDTOs);
+
+            chunk.forEach((id, i) -> results[i] = updated(i, id, beers.get(id)));
+        } catch (DataIntegrityViolationException | OptimisticLockingFailureException e) {
+            log.debug("Chunk of {} beer updates rolled back, retrying one by one", chunk.size(), e);
+
+            chunk.forEach((id, i) -> {
+                try {
+                    results[i] = updated(i, id, beerBatchWriter.updateAll(Map.of(id, beerDTOs.get(id))).get(id));
+                } catch (DataIntegrityViolationException | OptimisticLockingFailureException ex) {
+                    results[i] = conflict(i, id, beerDTOs.get(id));
+                }
+            });
+        }
+    }
+
+    private boolean isValid(int index, UUID id, BeerDTO beerDTO, BeerBatchResult[] results) {
+        Set<ConstraintViolation<BeerDTO>> violations = beerDTO != null
+                ? validator.validate(beerDTO) : Collections.emptySet();
+
+        if (beerDTO != null && violations.isEmpty()) {
+            return true;
+        }
+
+        results[index] = BeerBatchResult.builder()
+                .index(index)
+                .id(id)
+                .status(Status.INVALID)
+                .errors(beerDTO != null
+                        ? violations.stream().map(v -> v.getPropertyPath() + " " + v.getMessage()).collect(Collectors.toList())
+                        : List.of("beer must not be null"))
+                .build();
+
+        return false;
+    }
+
+    private BeerBatchResult updated(int index, UUID id, Beer beer) {
+        if (beer == null) {
+            return BeerBatchResult.builder().index(index).id(id).status(Status.NOT_FOUND).build();
+        }
+
+        beerDTOCache.putIfPresent(beerMapper.BeerToBeerDTO(beer));
+
+        return result(index, beer, Status.UPDATED);
+    }
+
+    // every written beer goes into the name and UPC indexes as well
+    private BeerBatchResult result(int index, Beer beer, Status status) {
+        beerNameIndex.put(beer.getId(), beer.getBeerName());
+        beerUpcIndex.put(beer.getUpc(), beer.getId());
+
+        return BeerBatchResult.builder().index(index).id(beer.getId()).version(beer.getVersion()).status(status).build();
+    }
+
+    private static BeerBatchResult conflict(int index, UUID id, BeerDTO beerDTO) {
+        return BeerBatchResult.builder()
+                .index(index)
+                .id(id)
+                .status(Status.CONFLICT)
+                .errors(List.of("upc " + beerDTO.getUpc() + " already exists or the beer was changed concurrently"))
+                .build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.eigenbaumarkt.restdocsexample.services;
+
+import com.eigenbaumarkt.restdocsexample.domain.Beer;
+import com.eigenbaumarkt.restdocsexample.repositories.BeerRepository;
+import com.eigenbaumarkt.restdocsexample.web.mappers.BeerMapper;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// one transaction per chunk of a batch; Hibernate groups the statements into JDBC batches on commit
+@RequiredArgsConstructor
+@Component
+public class BeerBatchWriter {
+
+    private final BeerRepository beerRepository;
+    private final BeerMapper beerMapper;
+    private final BeerChangeFeed beerChangeFeed;
+
+    // the change feed publishes after the commit, nothing of a chunk rolled back
+    @Transactional
+    public List<Beer> saveAll(List<Beer> beers) {
+        beerRepository.saveAll(beers);
+        beers.forEach(beerChangeFeed::created);
+
+        return beers;
+    }
+
+    // beers not found in the database are missing from the returned map
+    @Transactional
+    public Map<UUID, Beer> updateAll(Map<UUID, BeerDTO> beerDTOs) {
+        Map<UUID, Beer> beers = new HashMap<>(beerDTOs.size() * 2);
+
+        beerRepository.findAllById(beerDTOs.keySet()).forEach(beer -> {
+            Map<String, Object> before = BeerChangeFeed.fields(beer);
+            beerMapper.updateBeerFromBeerDTO(beerDTOs.get(beer.getId()), beer);
+            beerChangeFeed.updated(beer, before);
+            beers.put(beer.getId(), beer);
+        });
+
+        return beers;
+    }
+}
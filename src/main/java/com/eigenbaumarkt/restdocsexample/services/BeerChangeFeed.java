@@ -0,0 +1,377 @@
+package com.eigenbaumarkt.restdocsexample.services;
+
+import com.eigenbaumarkt.restdocsexample.domain.Beer;
+import com.eigenbaumarkt.restdocsexample.web.controller.ServiceUnavailableException;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerChangeEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// the changes of this instance to name, style, UPC and price as server-sent events, so caches do not have to poll;
+// the last beer.changes.buffer-size events are kept in a ring, a client reconnecting with Last-Event-ID gets what
+// it missed. A writer only appends to the ring after its commit, every subscriber is drained on a dispatcher
+// thread of its own pace: one falling behind by more than the ring gets a RESET instead of holding anybody up.
+// A send is a blocking servlet write: a client that stops reading without disconnecting is dropped after
+// beer.changes.send-timeout, and the dispatcher thread stuck in its write replaced until the write returns
+@Slf4j
+@Component
+public class BeerChangeFeed implements DisposableBean {
+
+    // the events of one drain, then the dispatcher thread moves on to the next subscriber
+    private static final int DRAIN_BATCH = 100;
+
+    // tells the sequences of this start from those of an earlier one
+    private final long epoch = System.currentTimeMillis();
+
+    private final BeerChangeEvent[] ring;
+    private final long timeoutMillis;
+    private final int maxSubscribers;
+    private final ThreadPoolExecutor dispatcher;
+    private final int dispatcherThreads;
+    private final long sendTimeoutNanos;
+    private final ScheduledExecutorService watchdog;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    // sequence of the last event appended; written under the lock of the feed
+    private volatile long head;
+
+    // dispatcher threads stuck in the send of a dropped subscriber; guarded by the dispatcher
+    private int stalledSends;
+
+    public BeerChangeFeed(@Value("${beer.changes.buffer-size:10000}") int bufferSize,
+                          @Value("${beer.changes.timeout:30m}") Duration timeout,
+                          @Value("${beer.changes.max-subscribers:1000}") int maxSubscribers,
+                          @Value("${beer.changes.dispatcher-threads:4}") int dispatcherThreads,
+                          @Value("${beer.changes.send-timeout:5s}") Duration sendTimeout) {
+        this.ring = new BeerChangeEvent[bufferSize];
+        this.timeoutMillis = timeout.toMillis();
+        this.maxSubscribers = maxSubscribers;
+        this.dispatcher = new ThreadPoolExecutor(dispatcherThreads, dispatcherThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("beer-changes-"));
+        this.dispatcher.allowCoreThreadTimeOut(true);
+        this.dispatcherThreads = dispatcherThreads;
+
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        long checkMillis = Math.max(sendTimeout.toMillis() / 4, 10);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("beer-changes-watchdog-"));
+        this.watchdog.scheduleWithFixedDelay(this::dropStalledSubscribers, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void created(Beer beer) {
+        publish(BeerChangeEvent.Type.CREATED, beer.getId(), beer::getVersion, fields(beer));
+    }
+
+    // before: fields() of the beer before it was changed; nothing is published if no field differs
+    public void updated(Beer beer, Map<String, Object> before) {
+        Map<String, Object> changes = new LinkedHashMap<>(fields(beer));
+        changes.entrySet().removeIf(field -> Objects.equals(field.getValue(), before.get(field.getKey())));
+
+        if (!changes.isEmpty()) {
+            publish(BeerChangeEvent.Type.UPDATED, beer.getId(), beer::getVersion, changes);
+        }
+    }
+
+    // a PATCH: changes are the attributes written, version is null if it was not conditional
+    public void updated(UUID beerId, Long version, Map<String, Object> changes) {
+        publish(BeerChangeEvent.Type.UPDATED, beerId, () -> version, changes);
+    }
+
+    // the fields the feed reports, as they are stored
+    public static Map<String, Object> fields(Beer beer) {
+        Map<String, Object> fields = new LinkedHashMap<>(8);
+        fields.put("beerName", beer.getBeerName());
+        fields.put("beerStyle", beer.getBeerStyle());
+        fields.put("upc", beer.getUpc());
+        fields.put("price", beer.getPrice());
+
+        return fields;
+    }
+
+    // in a transaction the event is appended after the commit, a rolled back write is never published;
+    // the version is read then as well, Hibernate increments it on flush
+    private void publish(BeerChangeEvent.Type type, UUID beerId, Supplier<Long> version, Map<String, Object> changes) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    append(type, beerId, version.get(), changes);
+                }
+            });
+        } else {
+            append(type, beerId, version.get(), changes);
+        }
+    }
+
+    private void append(BeerChangeEvent.Type type, UUID beerId, Long version, Map<String, Object> changes) {
+        synchronized (this) {
+            long sequence = head + 1;
+            ring[(int) (sequence % ring.length)] = new BeerChangeEvent(sequence, type, beerId, version, changes,
+                    OffsetDateTime.now());
+            head = sequence;
+        }
+
+        subscribers.forEach(Subscriber::signal);
+    }
+
+    // the events after sequence, at most max; null if some of them are not in the ring anymore
+    private synchronized List<BeerChangeEvent> after(long sequence, int max) {
+        if (head - sequence > ring.length) {
+            return null;
+        }
+
+        List<BeerChangeEvent> events = new ArrayList<>((int) Math.min(max, head - sequence));
+
+        for (long next = sequence + 1; next <= head && events.size() < max; next++) {
+            events.add(ring[(int) (next % ring.length)]);
+        }
+
+        return events;
+    }
+
+    // lastEventId: the id of the last event the client got, null for only the changes from now on
+    public SseEmitter subscribe(String lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ServiceUnavailableException("Too many subscribers of the change feed");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        long current = head;
+
+        if (lastEventId == null) {
+            subscriber.cursor = current;
+        } else {
+            long sequence = sequenceOf(lastEventId);
+
+            // from an earlier start of the server, or an id it never handed out
+            if (sequence < 0 || sequence > current) {
+                subscriber.reset = true;
+                subscriber.cursor = current;
+            } else {
+                subscriber.cursor = sequence;
+            }
+        }
+
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscriber.close());
+
+        subscribers.add(subscriber);
+        subscriber.signal();
+
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    // the emitter cannot be completed from here, it is locked by the send; that completes it once it returns
+    private void dropStalledSubscribers() {
+        long now = System.nanoTime();
+
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.stallIfSendingSince(now - sendTimeoutNanos)) {
+                log.warn("Dropped a change feed subscriber not reading for {} ms", sendTimeoutNanos / 1_000_000);
+                resizeDispatcher(1);
+            }
+        }
+    }
+
+    // one more thread for every one stuck in a send, the other subscribers keep their threads
+    private void resizeDispatcher(int stalledSendsDelta) {
+        synchronized (dispatcher) {
+            stalledSends += stalledSendsDelta;
+            int size = dispatcherThreads + stalledSends;
+
+            // the maximum may never be below the core size
+            if (stalledSendsDelta > 0) {
+                dispatcher.setMaximumPoolSize(size);
+                dispatcher.setCorePoolSize(size);
+            } else {
+                dispatcher.setCorePoolSize(size);
+                dispatcher.setMaximumPoolSize(size);
+            }
+        }
+    }
+
+    private long sequenceOf(String eventId) {
+        int separator = eventId.indexOf('-');
+
+        try {
+            if (separator > 0 && Long.parseLong(eventId.substring(0, separator)) == epoch) {
+                return Long.parseLong(eventId.substring(separator + 1));
+            }
+        } catch (NumberFormatException e) {
+            // not one of ours
+        }
+
+        return -1;
+    }
+
+    private String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    // before the graceful shutdown of the web server, which would wait for the open streams otherwise;
+    // the clients reconnect to another instance
+    @EventListener(ContextClosedEvent.class)
+    public void completeSubscribers() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    @Override
+    public void destroy() {
+        watchdog.shutdownNow();
+        dispatcher.shutdown();
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        // the last sequence sent; only touched by the one drain running at a time
+        private long cursor;
+        private boolean reset;
+        private volatile boolean closed;
+
+        // when the running send started, 0 while not sending; guarded by the subscriber
+        private long sendStarted;
+        private boolean stalled;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void signal() {
+            if (closed || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+
+            try {
+                dispatcher.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                emitter.complete();
+            }
+        }
+
+        private void drain() {
+            boolean gone = false;
+
+            try {
+                List<BeerChangeEvent> events = after(cursor, DRAIN_BATCH);
+
+                if (events == null) {
+                    reset = true;
+                    cursor = head;
+                    events = List.of();
+                }
+
+                if (reset) {
+                    send(new BeerChangeEvent(cursor, BeerChangeEvent.Type.RESET, null, null, null, OffsetDateTime.now()));
+                    reset = false;
+                }
+
+                for (BeerChangeEvent event : events) {
+                    if (closed) {
+                        break;
+                    }
+                    send(event);
+                    cursor = event.getSequence();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // the client went away
+                log.debug("Change feed subscriber gone", e);
+                gone = true;
+                close();
+                emitter.completeWithError(e);
+            } finally {
+                scheduled.set(false);
+            }
+
+            if (isStalled()) {
+                // the write finally returned, its thread is not needed anymore
+                if (!gone) {
+                    emitter.complete();
+                }
+                resizeDispatcher(-1);
+                return;
+            }
+
+            // more than one batch behind, or appended while the flag was still set
+            if (head > cursor) {
+                signal();
+            }
+        }
+
+        private void send(BeerChangeEvent event) throws IOException {
+            synchronized (this) {
+                sendStarted = System.nanoTime();
+            }
+
+            try {
+                emitter.send(SseEmitter.event()
+                        .id(eventId(event.getSequence()))
+                        .name(event.getType().name().toLowerCase(Locale.ROOT))
+                        .data(event, MediaType.APPLICATION_JSON));
+            } finally {
+                synchronized (this) {
+                    sendStarted = 0;
+                }
+            }
+        }
+
+        // only while a send is running, so the drain running it is the one to see it after the send
+        private boolean stallIfSendingSince(long deadline) {
+            synchronized (this) {
+                if (sendStarted == 0 || sendStarted - deadline > 0 || stalled) {
+                    return false;
+                }
+                stalled = true;
+            }
+
+            close();
+            return true;
+        }
+
+        private synchronized boolean isStalled() {
+            return stalled;
+        }
+
+        private void close() {
+            closed = true;
+            subscribers.remove(this);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.eigenbaumarkt.restdocsexample.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// the count(*) over the whole table, shared by all clients paging through the catalog for beer.listing.count-ttl;
+// the servlet and the reactive listing count the same table, so they share it as well
+@Component
+public class BeerCountCache {
+
+    private final long ttlNanos;
+
+    private volatile long count = -1;
+    private volatile long expiresAt;
+
+    public BeerCountCache(@Value("${beer.listing.count-ttl:10s}") Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    // -1 if there is none or it is too old; concurrent misses may both count, the later one wins
+    public long getIfFresh() {
+        long current = count;
+
+        return current >= 0 && System.nanoTime() - expiresAt <= 0 ? current : -1;
+    }
+
+    public void put(long count) {
+        this.expiresAt = System.nanoTime() + ttlNanos;
+        this.count = count;
+    }
+}
@@ -0,0 +1,104 @@
+package com.eigenbaumarkt.restdocsexample.services;
+
+import com.eigenbaumarkt.restdocsexample.web.model.BeerDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// in-process cache of mapped BeerDTOs, bounded in size (W-TinyLFU eviction) and age;
+// writers put the new state instead of evicting, an entry is only replaced by a newer Beer.version
+@Component
+public class BeerDTOCache implements MeterBinder {
+
+    private static final int WRITE_STAMP_STRIPES = 1024;
+
+    private final Cache<UUID, BeerDTO> cache;
+
+    // counts the writes per stripe of beer ids: a load that read a beer before a write to it must not cache it
+    // afterwards, an evicted beer would come back with its old state
+    private final AtomicLongArray writeStamps = new AtomicLongArray(WRITE_STAMP_STRIPES);
+    // System.nanoTime() of the last write per stripe, for loads from a replica that may lag behind
+    private final AtomicLongArray writeTimes = new AtomicLongArray(WRITE_STAMP_STRIPES);
+
+    public BeerDTOCache(@Value("${beer.cache.maximum-size:10000}") long maximumSize,
+                        @Value("${beer.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    public BeerDTO getIfPresent(UUID beerId) {
+        return cache.getIfPresent(beerId);
+    }
+
+    public void put(BeerDTO beerDTO) {
+        written(beerDTO.getId());
+        cache.asMap().compute(beerDTO.getId(), (id, cached) ->
+                cached != null && version(cached) > version(beerDTO) ? cached : beerDTO);
+    }
+
+    // for bulk writes: keeps already cached beers current without pulling cold ones into the cache
+    public void putIfPresent(BeerDTO beerDTO) {
+        written(beerDTO.getId());
+        cache.asMap().computeIfPresent(beerDTO.getId(), (id, cached) ->
+                version(cached) > version(beerDTO) ? cached : beerDTO);
+    }
+
+    public void evict(UUID beerId) {
+        written(beerId);
+        cache.invalidate(beerId);
+    }
+
+    // taken before reading a beer from the database, see putIfUnchanged
+    public long writeStamp(UUID beerId) {
+        return writeStamps.get(stripe(beerId));
+    }
+
+    // for loads: cached only if no write to the beer (or one of its stripe) came in since the stamp was taken, and
+    // none within replicationLagNanos before, a replica may not have it yet; the check runs inside compute(), so a
+    // concurrent evict() either sees the new entry or makes the check fail
+    public void putIfUnchanged(UUID beerId, BeerDTO beerDTO, long writeStamp, long replicationLagNanos) {
+        int stripe = stripe(beerId);
+
+        cache.asMap().compute(beerId, (id, cached) -> writeStamps.get(stripe) != writeStamp
+                || (writeStamp != 0 && System.nanoTime() - writeTimes.get(stripe) < replicationLagNanos)
+                || (cached != null && version(cached) > version(beerDTO)) ? cached : beerDTO);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    // hit/miss/eviction counters show up as cache.* metrics, tagged cache=beerDTOs
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "beerDTOs", Tags.empty());
+    }
+
+    private void written(UUID beerId) {
+        int stripe = stripe(beerId);
+
+        writeTimes.set(stripe, System.nanoTime());
+        writeStamps.incrementAndGet(stripe);
+    }
+
+    private static int stripe(UUID beerId) {
+        return beerId.hashCode() & (WRITE_STAMP_STRIPES - 1);
+    }
+
+    private static long version(BeerDTO beerDTO) {
+        return beerDTO.getVersion() != null ? beerDTO.getVersion() : -1;
+    }
+}
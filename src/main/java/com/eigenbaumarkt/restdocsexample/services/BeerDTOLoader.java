@@ -0,0 +1,199 @@
+package com.eigenbaumarkt.restdocsexample.services;
+
+import com.eigenbaumarkt.restdocsexample.datasource.PrimaryPin;
+import com.eigenbaumarkt.restdocsexample.repositories.BeerRepository;
+import com.eigenbaumarkt.restdocsexample.web.mappers.BeerMapper;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+// loads beers missing in BeerDTOCache. Concurrent lookups of the same beer share one query, and lookups of
+// different beers within beer.lookup.batch-window are read together with one IN query: the first lookup of a
+// window waits for it to pass and then queries for all of them on its own thread, the others wait for its result.
+// Reads pinned to the primary (read-your-writes) bypass the cache; the other ones may read a replica, see
+// ReplicaConfig, and are only cached if the beer was not written within the read-your-writes window
+@Component
+public class BeerDTOLoader {
+
+    private final BeerRepository beerRepository;
+    private final BeerMapper beerMapper;
+    private final BeerDTOCache beerDTOCache;
+    private final long batchWindowNanos;
+    private final int maxBatchSize;
+    // 0 without a replica
+    private final long replicationLagNanos;
+
+    private final Map<UUID, Lookup> inFlight = new ConcurrentHashMap<>();
+
+    // guarded by itself, replaced once it is taken for a query
+    private final Object batchLock = new Object();
+    private List<Lookup> batch = new ArrayList<>();
+
+    public BeerDTOLoader(BeerRepository beerRepository, BeerMapper beerMapper, BeerDTOCache beerDTOCache,
+                         @Value("${beer.lookup.batch-window:1ms}") Duration batchWindow,
+                         @Value("${beer.lookup.max-batch-size:100}") int maxBatchSize,
+                         @Value("${beer.datasource.replica.read-your-writes-window:0s}") Duration replicationLag) {
+        this.beerRepository = beerRepository;
+        this.beerMapper = beerMapper;
+        this.beerDTOCache = beerDTOCache;
+        this.batchWindowNanos = batchWindow.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.replicationLagNanos = replicationLag.toNanos();
+    }
+
+    // null for an unknown beer
+    public BeerDTO get(UUID beerId) {
+        // the cache may hold a state older than the client's own write; nor may it wait for a query to the replica
+        if (PrimaryPin.isPinned()) {
+            return load(List.of(beerId), 0).get(beerId);
+        }
+
+        BeerDTO cached = beerDTOCache.getIfPresent(beerId);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        Lookup lookup = new Lookup(beerId);
+        Lookup running = inFlight.putIfAbsent(beerId, lookup);
+
+        if (running != null) {
+            return running.join();
+        }
+
+        List<Lookup> joined;
+        List<Lookup> full = null;
+        boolean first;
+
+        synchronized (batchLock) {
+            joined = batch;
+            joined.add(lookup);
+            first = joined.size() == 1;
+
+            if (joined.size() >= maxBatchSize) {
+                full = joined;
+                batch = new ArrayList<>();
+            }
+        }
+
+        if (full != null) {
+            run(full);
+        } else if (first) {
+            LockSupport.parkNanos(batchWindowNanos);
+
+            synchronized (batchLock) {
+                // unless it filled up meanwhile and was taken by the lookup completing it
+                if (batch == joined) {
+                    full = joined;
+                    batch = new ArrayList<>();
+                }
+            }
+
+            if (full != null) {
+                run(full);
+            }
+        }
+
+        return lookup.join();
+    }
+
+    // the multi-get: the beers that are not cached are read with one IN query, unknown ones are left out
+    public Map<UUID, BeerDTO> getAll(Collection<UUID> beerIds) {
+        Map<UUID, BeerDTO> beerDTOs = new LinkedHashMap<>();
+        Set<UUID> missing = new LinkedHashSet<>();
+        boolean pinned = PrimaryPin.isPinned();
+
+        for (UUID beerId : beerIds) {
+            BeerDTO cached = pinned ? null : beerDTOCache.getIfPresent(beerId);
+
+            if (cached != null) {
+                beerDTOs.put(beerId, cached);
+            } else {
+                beerDTOs.put(beerId, null);
+                missing.add(beerId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            beerDTOs.putAll(load(missing, pinned ? 0 : replicationLagNanos));
+        }
+
+        beerDTOs.values().removeIf(beerDTO -> beerDTO == null);
+
+        return beerDTOs;
+    }
+
+    private void run(List<Lookup> lookups) {
+        List<UUID> beerIds = new ArrayList<>(lookups.size());
+        lookups.forEach(lookup -> beerIds.add(lookup.beerId));
+
+        try {
+            Map<UUID, BeerDTO> beerDTOs = load(beerIds, replicationLagNanos);
+
+            for (Lookup lookup : lookups) {
+                inFlight.remove(lookup.beerId, lookup);
+                lookup.complete(beerDTOs.get(lookup.beerId));
+            }
+        } catch (RuntimeException | Error e) {
+            // the others would wait forever
+            for (Lookup lookup : lookups) {
+                inFlight.remove(lookup.beerId, lookup);
+                lookup.completeExceptionally(e);
+            }
+        }
+    }
+
+    // a single beer is read by its primary key, more with one IN query; replicationLagNanos is 0 for the primary
+    private Map<UUID, BeerDTO> load(Collection<UUID> beerIds, long replicationLagNanos) {
+        Map<UUID, Long> writeStamps = new HashMap<>();
+        beerIds.forEach(beerId -> writeStamps.put(beerId, beerDTOCache.writeStamp(beerId)));
+
+        Map<UUID, BeerDTO> beerDTOs = new HashMap<>();
+
+        if (beerIds.size() == 1) {
+            UUID beerId = beerIds.iterator().next();
+            beerRepository.findById(beerId).ifPresent(beer -> beerDTOs.put(beerId, beerMapper.BeerToBeerDTO(beer)));
+        } else {
+            beerRepository.findAllById(beerIds).forEach(beer -> beerDTOs.put(beer.getId(), beerMapper.BeerToBeerDTO(beer)));
+        }
+
+        beerDTOs.forEach((beerId, beerDTO) -> beerDTOCache.putIfUnchanged(beerId, beerDTO,
+                writeStamps.get(beerId), replicationLagNanos));
+
+        return beerDTOs;
+    }
+
+    private static final class Lookup extends CompletableFuture<BeerDTO> {
+
+        private final UUID beerId;
+
+        private Lookup(UUID beerId) {
+            this.beerId = beerId;
+        }
+
+        // the exception of the query, as thrown by the repository
+        @Override
+        public BeerDTO join() {
+            try {
+                return super.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+    }
+}
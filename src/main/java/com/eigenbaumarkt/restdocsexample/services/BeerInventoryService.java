@@ -0,0 +1,17 @@
+package com.eigenbaumarkt.restdocsexample.services;
+
+import com.eigenbaumarkt.restdocsexample.web.model.BeerInventoryDTO;
+
+import java.util.UUID;
+
+public interface BeerInventoryService {
+
+    // buffered, the adjustment reaches the database with the next flush
+    void adjustEventually(UUID beerId, int delta);
+
+    // written before returning, fails with a ConflictException if the stock does not cover a withdrawal
+    BeerInventoryDTO adjustNow(UUID beerId, int delta);
+
+    // writes the buffered adjustments of all beers
+    void flush();
+}
@@ -0,0 +1,180 @@
+package com.eigenbaumarkt.restdocsexample.services;
+
+import com.eigenbaumarkt.restdocsexample.repositories.BeerInventoryRepository;
+import com.eigenbaumarkt.restdocsexample.repositories.BeerRepository;
+import com.eigenbaumarkt.restdocsexample.web.controller.ConflictException;
+import com.eigenbaumarkt.restdocsexample.web.controller.NotFoundException;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerInventoryDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// adjustments of a hot beer would all queue for the same row lock; instead they are added to a LongAdder
+// per beer (striped, so concurrent adds do not contend) and written as one batch every flush interval.
+// A flush takes sum() and subtracts exactly that, so adds racing with the flush stay for the next one.
+// Entries are never removed, a thread may still be adding to an adder it looked up before.
+@Slf4j
+@Service
+public class BeerInventoryServiceImpl implements BeerInventoryService, DisposableBean {
+
+    private final BeerInventoryRepository beerInventoryRepository;
+    private final BeerRepository beerRepository;
+    private final BeerDTOCache beerDTOCache;
+    private final ScheduledExecutorService flusher;
+
+    private final Map<UUID, LongAdder> pending = new ConcurrentHashMap<>();
+    // beers checked to exist once, there is no way to delete a beer
+    private final Set<UUID> knownBeers = ConcurrentHashMap.newKeySet();
+
+    public BeerInventoryServiceImpl(BeerInventoryRepository beerInventoryRepository, BeerRepository beerRepository,
+                                    BeerDTOCache beerDTOCache,
+                                    @Value("${beer.inventory.flush-interval:500ms}") Duration flushInterval) {
+        this.beerInventoryRepository = beerInventoryRepository;
+        this.beerRepository = beerRepository;
+        this.beerDTOCache = beerDTOCache;
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("inventory-flush-"));
+        this.flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void adjustEventually(UUID beerId, int delta) {
+        checkExists(beerId);
+
+        pending.computeIfAbsent(beerId, id -> new LongAdder()).add(delta);
+    }
+
+    @Override
+    public BeerInventoryDTO adjustNow(UUID beerId, int delta) {
+        // the buffered adjustments go into the same update, so the stock check sees them as well
+        long buffered = drain(beerId);
+        Integer quantityOnHand;
+
+        try {
+            quantityOnHand = beerInventoryRepository.adjustQuantityOnHand(beerId, buffered + delta);
+        } catch (RuntimeException e) {
+            giveBack(beerId, buffered);
+            throw e;
+        }
+
+        if (quantityOnHand == null) {
+            giveBack(beerId, buffered);
+            checkExists(beerId);
+
+            throw new ConflictException("Not enough stock of beer " + beerId + " for " + delta);
+        }
+
+        knownBeers.add(beerId);
+        beerDTOCache.evict(beerId);
+
+        return new BeerInventoryDTO(beerId, quantityOnHand);
+    }
+
+    @Override
+    public void flush() {
+        Map<UUID, Long> deltas = new LinkedHashMap<>();
+
+        pending.keySet().forEach(beerId -> {
+            long delta = drain(beerId);
+
+            if (delta != 0) {
+                deltas.put(beerId, delta);
+            }
+        });
+
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        int[] updated;
+
+        try {
+            updated = beerInventoryRepository.addToQuantitiesOnHand(deltas);
+        } catch (RuntimeException e) {
+            // back into the buffers, the next flush tries again
+            deltas.forEach(this::giveBack);
+            throw e;
+        }
+
+        int i = 0;
+        for (Map.Entry<UUID, Long> entry : deltas.entrySet()) {
+            if (updated[i++] == 0) {
+                log.warn("Dropped inventory adjustment {} of unknown beer {}", entry.getValue(), entry.getKey());
+            }
+
+            beerDTOCache.evict(entry.getKey());
+        }
+    }
+
+    // after the web server stopped taking requests (server.shutdown=graceful), before the DataSource is closed
+    @Override
+    public void destroy() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // nothing is left to retry with, the log is the only place these adjustments survive
+            pending.forEach((beerId, adder) -> {
+                long delta = adder.sum();
+
+                if (delta != 0) {
+                    log.error("Inventory adjustment {} of beer {} was not written", delta, beerId);
+                }
+            });
+            throw e;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Flushing the inventory adjustments failed, retrying with the next flush", e);
+        }
+    }
+
+    private long drain(UUID beerId) {
+        LongAdder adder = pending.get(beerId);
+
+        if (adder == null) {
+            return 0;
+        }
+
+        long delta = adder.sum();
+        adder.add(-delta);
+
+        return delta;
+    }
+
+    private void giveBack(UUID beerId, long delta) {
+        if (delta != 0) {
+            pending.computeIfAbsent(beerId, id -> new LongAdder()).add(delta);
+        }
+    }
+
+    private void checkExists(UUID beerId) {
+        if (!knownBeers.contains(beerId)) {
+            if (beerRepository.findVersionById(beerId).isEmpty()) {
+                throw new NotFoundException("Beer not found: " + beerId);
+            }
+
+            knownBeers.add(beerId);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.eigenbaumarkt.restdocsexample.services;
+
+import com.eigenbaumarkt.restdocsexample.repositories.BeerName;
+import com.eigenbaumarkt.restdocsexample.repositories.BeerRepository;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerNameSuggestion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+// in-memory autocomplete on beer names: every word of a name (lower case) points to the beers having it, so a
+// prefix is a range scan over the sorted words instead of a LIKE '%...' over the table; loaded on startup and
+// kept current by the services writing beers
+@Slf4j
+@Component
+public class BeerNameIndex {
+
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final BeerRepository beerRepository;
+
+    private final ConcurrentSkipListMap<String, Set<UUID>> words = new ConcurrentSkipListMap<>();
+    private final Map<UUID, IndexedName> names = new ConcurrentHashMap<>();
+
+    public BeerNameIndex(BeerRepository beerRepository) {
+        this.beerRepository = beerRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.nanoTime();
+        List<BeerName> beerNames = beerRepository.findAllNamesBy();
+
+        beerNames.forEach(beerName -> put(beerName.getId(), beerName.getBeerName()));
+
+        log.info("Indexed {} beer names in {} ms", beerNames.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // writes are serialized, so names and words always change together; readers do not lock
+    public synchronized void put(UUID beerId, String beerName) {
+        if (beerId == null) {
+            return;
+        }
+
+        IndexedName previous = beerName != null ? names.put(beerId, new IndexedName(beerName)) : names.remove(beerId);
+
+        if (previous != null && previous.beerName.equals(beerName)) {
+            return;
+        }
+
+        if (previous != null) {
+            for (String word : previous.words) {
+                words.computeIfPresent(word, (w, beerIds) -> {
+                    beerIds.remove(beerId);
+                    return beerIds.isEmpty() ? null : beerIds;
+                });
+            }
+        }
+
+        if (beerName != null) {
+            for (String word : names.get(beerId).words) {
+                words.computeIfAbsent(word, w -> ConcurrentHashMap.newKeySet()).add(beerId);
+            }
+        }
+    }
+
+    // beers with a word starting with each word of the query, "mönchs lag" finds "Mönchsambacher Lager"
+    public List<BeerNameSuggestion> suggest(String query, int limit) {
+        String[] queryWords = words(query);
+
+        if (queryWords.length == 0 || limit < 1) {
+            return List.of();
+        }
+
+        // candidates come from the query word matching the fewest beers, the others are checked per candidate
+        Collection<Set<UUID>> candidates = wordsStartingWith(queryWords[0]);
+        int fewest = queryWords.length == 1 ? 0 : count(candidates, Integer.MAX_VALUE);
+
+        for (int i = 1; i < queryWords.length; i++) {
+            Collection<Set<UUID>> matching = wordsStartingWith(queryWords[i]);
+            int count = count(matching, fewest);
+
+            if (count < fewest) {
+                candidates = matching;
+                fewest = count;
+            }
+        }
+
+        Map<UUID, String> matches = new LinkedHashMap<>();
+
+        scan:
+        for (Set<UUID> beerIds : candidates) {
+            for (UUID beerId : beerIds) {
+                IndexedName indexedName = names.get(beerId);
+
+                // changed since the scan started
+                if (indexedName != null && (queryWords.length == 1 || indexedName.matchesAll(queryWords))) {
+                    matches.put(beerId, indexedName.beerName);
+
+                    if (matches.size() == limit) {
+                        break scan;
+                    }
+                }
+            }
+        }
+
+        List<BeerNameSuggestion> suggestions = new ArrayList<>(matches.size());
+        matches.forEach((beerId, beerName) -> suggestions.add(new BeerNameSuggestion(beerId, beerName)));
+
+        return suggestions;
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    private Collection<Set<UUID>> wordsStartingWith(String prefix) {
+        return words.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values();
+    }
+
+    // stops counting at max, a short prefix like "m" must not walk half of the index just to lose
+    private static int count(Collection<Set<UUID>> matching, int max) {
+        int count = 0;
+
+        for (Set<UUID> beerIds : matching) {
+            count += beerIds.size();
+
+            if (count >= max) {
+                return max;
+            }
+        }
+
+        return count;
+    }
+
+    private static String[] words(String text) {
+        String trimmed = WORD_SEPARATOR.matcher(text.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+
+        return trimmed.isEmpty() ? new String[0] : trimmed.split(" ");
+    }
+
+    private static final class IndexedName {
+
+        private final String beerName;
+        private final String[] words;
+
+        private IndexedName(String beerName) {
+            this.beerName = beerName;
+            this.words = words(beerName);
+        }
+
+        private boolean matchesAll(String[] queryWords) {
+            for (String queryWord : queryWords) {
+                boolean found = false;
+
+                for (String word : words) {
+                    if (word.startsWith(queryWord)) {
+                        found = true;
+                        break;
+                    }
+                }
+
+                if (!found) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+}
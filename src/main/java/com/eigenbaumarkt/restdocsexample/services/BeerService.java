@@ -0,0 +1,54 @@
+package com.eigenbaumarkt.restdocsexample.services;
+
+import com.eigenbaumarkt.restdocsexample.repositories.BeerRevision;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerDTO;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerNameSuggestion;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerPageCursor;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerPagedList;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerPatchDTO;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerSearchCriteria;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface BeerService {
+
+    BeerDTO getBeerById(UUID beerId);
+
+    // the beers found, in the order of the ids and without duplicates
+    List<BeerDTO> getBeersByIds(List<UUID> beerIds);
+
+    boolean isBeerCached(UUID beerId);
+
+    // resolved by BeerUpcIndex, a UPC it does not know (yet) is looked up in the database
+    BeerDTO getBeerByUpc(long upc);
+
+    boolean isBeerCachedByUpc(long upc);
+
+    BeerDTO saveNewBeer(BeerDTO beerDTO);
+
+    Long getBeerVersion(UUID beerId);
+
+    BeerRevision getBeerRevision(UUID beerId);
+
+    // expectedVersion is optional, empty if there is no such beer
+    Optional<BeerDTO> updateBeerById(UUID beerId, BeerDTO beerDTO, Long expectedVersion);
+
+    // writes only the non-null fields of the patch, returns the new version if it is known without a query
+    Long patchBeerById(UUID beerId, BeerPatchDTO beerPatchDTO, Long expectedVersion);
+
+    BeerPagedList listBeers(int pageNumber, int pageSize, boolean withCount);
+
+    BeerPagedList listBeersAfter(BeerPageCursor cursor, int pageSize);
+
+    BeerPagedList searchBeers(BeerSearchCriteria criteria, int pageNumber, int pageSize);
+
+    // answered from BeerNameIndex, without a query
+    List<BeerNameSuggestion> suggestBeerNames(String query, int limit);
+
+    // writes every beer as one line of JSON (NDJSON), without holding the table in memory
+    void exportBeers(OutputStream outputStream) throws IOException;
+}
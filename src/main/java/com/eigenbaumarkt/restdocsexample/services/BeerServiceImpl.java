@@ -0,0 +1,391 @@
+package com.eigenbaumarkt.restdocsexample.services;
+
+import com.eigenbaumarkt.restdocsexample.datasource.PrimaryPin;
+import com.eigenbaumarkt.restdocsexample.domain.Beer;
+import com.eigenbaumarkt.restdocsexample.repositories.BeerRevision;
+import com.eigenbaumarkt.restdocsexample.repositories.BeerRepository;
+import com.eigenbaumarkt.restdocsexample.web.controller.NotFoundException;
+import com.eigenbaumarkt.restdocsexample.web.controller.PreconditionFailedException;
+import com.eigenbaumarkt.restdocsexample.web.mappers.BeerMapper;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerDTO;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerNameSuggestion;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerPageCursor;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerPagedList;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerPatchDTO;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerSearchCriteria;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.criteria.Predicate;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Service
+public class BeerServiceImpl implements BeerService {
+
+    // the keyset cursor relies on this order, so offset pages use it as well
+    private static final Sort BEER_ORDER = Sort.by("createdDate", "id");
+    // matches ix_beer_beer_name, a name prefix search reads the index in order
+    private static final Sort SEARCH_ORDER = Sort.by("beerName", "id");
+
+    private final BeerRepository beerRepository;
+    private final BeerMapper beerMapper;
+    private final BeerDTOCache beerDTOCache;
+    private final BeerDTOLoader beerDTOLoader;
+    private final BeerNameIndex beerNameIndex;
+    private final BeerUpcIndex beerUpcIndex;
+    private final BeerChangeFeed beerChangeFeed;
+    private final ObjectMapper objectMapper;
+    private final BeerCountCache beerCountCache;
+
+    public BeerServiceImpl(BeerRepository beerRepository, BeerMapper beerMapper, BeerDTOCache beerDTOCache,
+                           BeerDTOLoader beerDTOLoader, BeerNameIndex beerNameIndex, BeerUpcIndex beerUpcIndex, BeerChangeFeed beerChangeFeed,
+                           ObjectMapper objectMapper, BeerCountCache beerCountCache) {
+        this.beerRepository = beerRepository;
+        this.beerMapper = beerMapper;
+        this.beerDTOCache = beerDTOCache;
+        this.beerDTOLoader = beerDTOLoader;
+        this.beerNameIndex = beerNameIndex;
+        this.beerUpcIndex = beerUpcIndex;
+        this.beerChangeFeed = beerChangeFeed;
+        this.objectMapper = objectMapper;
+        this.beerCountCache = beerCountCache;
+    }
+
+    @Override
+    public BeerDTO getBeerById(UUID beerId) {
+        BeerDTO beerDTO = beerDTOLoader.get(beerId);
+
+        if (beerDTO == null) {
+            throw new NotFoundException("Beer not found: " + beerId);
+        }
+
+        return beerDTO;
+    }
+
+    @Override
+    public List<BeerDTO> getBeersByIds(List<UUID> beerIds) {
+        return new ArrayList<>(beerDTOLoader.getAll(beerIds).values());
+    }
+
+    // the writes are not wrapped in a transaction here: the repository commits in save(), so the returned
+    // entity already carries the version that was written and can go into the cache right away
+    @Override
+    public BeerDTO saveNewBeer(BeerDTO beerDTO) {
+        Beer savedBeer = beerRepository.save(beerMapper.BeerDTOToBeer(beerDTO));
+        BeerDTO savedBeerDTO = beerMapper.BeerToBeerDTO(savedBeer);
+
+        beerDTOCache.put(savedBeerDTO);
+        beerNameIndex.put(savedBeerDTO.getId(), savedBeerDTO.getBeerName());
+        beerUpcIndex.put(savedBeerDTO.getUpc(), savedBeerDTO.getId());
+        beerChangeFeed.created(savedBeer);
+
+        return savedBeerDTO;
+    }
+
+    @Override
+    public boolean isBeerCached(UUID beerId) {
+        // reads pinned to the primary do not use the cache, see BeerDTOLoader
+        return !PrimaryPin.isPinned() && beerDTOCache.getIfPresent(beerId) != null;
+    }
+
+    @Override
+    public BeerDTO getBeerByUpc(long upc) {
+        UUID beerId = beerUpcIndex.get(upc);
+
+        if (beerId != null) {
+            BeerDTO beerDTO = beerDTOLoader.get(beerId);
+
+            if (beerDTO != null && beerDTO.getUpc() != null && beerDTO.getUpc() == upc) {
+                return beerDTO;
+            }
+
+            // the beer has another UPC by now
+            beerUpcIndex.remove(upc, beerId);
+        }
+
+        // only the id is read by the UPC; the beer is loaded like any other, so it is not cached over a write
+        // that came in meanwhile
+        beerId = beerRepository.findIdByUpc(upc)
+                .orElseThrow(() -> new NotFoundException("Beer not found: UPC " + upc));
+        BeerDTO beerDTO = beerDTOLoader.get(beerId);
+
+        if (beerDTO == null || beerDTO.getUpc() == null || beerDTO.getUpc() != upc) {
+            throw new NotFoundException("Beer not found: UPC " + upc);
+        }
+
+        beerUpcIndex.put(upc, beerId);
+
+        return beerDTO;
+    }
+
+    @Override
+    public boolean isBeerCachedByUpc(long upc) {
+        UUID beerId = beerUpcIndex.get(upc);
+
+        return beerId != null && isBeerCached(beerId);
+    }
+
+    // the cached DTO carries the version as well, only a miss costs a (single column) query
+    @Override
+    public Long getBeerVersion(UUID beerId) {
+        BeerDTO cached = PrimaryPin.isPinned() ? null : beerDTOCache.getIfPresent(beerId);
+
+        if (cached != null && cached.getVersion() != null) {
+            return cached.getVersion().longValue();
+        }
+
+        return beerRepository.findVersionById(beerId)
+                .orElseThrow(() -> new NotFoundException("Beer not found: " + beerId));
+    }
+
+    // like getBeerVersion, with the stock for the ETag
+    @Override
+    public BeerRevision getBeerRevision(UUID beerId) {
+        BeerDTO cached = PrimaryPin.isPinned() ? null : beerDTOCache.getIfPresent(beerId);
+
+        if (cached != null && cached.getVersion() != null) {
+            return new BeerRevision(cached.getVersion().longValue(), cached.getQuantityOnHand());
+        }
+
+        return beerRepository.findRevisionById(beerId)
+                .orElseThrow(() -> new NotFoundException("Beer not found: " + beerId));
+    }
+
+    @Override
+    public Optional<BeerDTO> updateBeerById(UUID beerId, BeerDTO beerDTO, Long expectedVersion) {
+        return beerRepository.findById(beerId).map(beer -> {
+            if (expectedVersion != null && !expectedVersion.equals(beer.getVersion())) {
+                throw new PreconditionFailedException("Beer " + beerId + " has version " + beer.getVersion());
+            }
+
+            Map<String, Object> before = BeerChangeFeed.fields(beer);
+            beerMapper.updateBeerFromBeerDTO(beerDTO, beer);
+
+            try {
+                Beer updatedBeer = beerRepository.save(beer);
+                BeerDTO updatedBeerDTO = beerMapper.BeerToBeerDTO(updatedBeer);
+                beerDTOCache.put(updatedBeerDTO);
+                beerNameIndex.put(beerId, updatedBeerDTO.getBeerName());
+                if (!Objects.equals(before.get("upc"), updatedBeerDTO.getUpc())) {
+                    beerUpcIndex.remove((Long) before.get("upc"), beerId);
+                    beerUpcIndex.put(updatedBeerDTO.getUpc(), beerId);
+                }
+                beerChangeFeed.updated(updatedBeer, before);
+
+                return updatedBeerDTO;
+            } catch (OptimisticLockingFailureException e) {
+                // changed by someone else between findById and save
+                if (expectedVersion != null) {
+                    throw new PreconditionFailedException("Beer " + beerId + " was changed concurrently");
+                }
+                throw e;
+            }
+        });
+    }
+
+    // a single UPDATE ... WHERE id = ? [AND version = ?], the affected row count tells success from failure
+    @Override
+    public Long patchBeerById(UUID beerId, BeerPatchDTO beerPatchDTO, Long expectedVersion) {
+        Map<String, Object> attributes = new LinkedHashMap<>(8);
+
+        if (beerPatchDTO.getBeerName() != null) {
+            attributes.put("beerName", beerPatchDTO.getBeerName());
+        }
+        if (beerPatchDTO.getBeerStyle() != null) {
+            attributes.put("beerStyle", beerPatchDTO.getBeerStyle().name());
+        }
+        if (beerPatchDTO.getUpc() != null) {
+            attributes.put("upc", beerPatchDTO.getUpc());
+        }
+        if (beerPatchDTO.getPrice() != null) {
+            attributes.put("price", beerPatchDTO.getPrice());
+        }
+
+        if (attributes.isEmpty()) {
+            return getBeerVersion(beerId);
+        }
+
+        if (beerRepository.updateAttributes(beerId, expectedVersion, attributes) == 0) {
+            // only the failure path pays for a second query
+            Long version = versionOnPrimary(beerId);
+
+            throw new PreconditionFailedException("Beer " + beerId + " has version " + version);
+        }
+
+        // the new state was not read back, the next getBeerById loads it
+        beerDTOCache.evict(beerId);
+
+        if (beerPatchDTO.getBeerName() != null) {
+            beerNameIndex.put(beerId, beerPatchDTO.getBeerName());
+        }
+        // the old UPC is not known here, getBeerByUpc drops it on its next lookup
+        beerUpcIndex.put(beerPatchDTO.getUpc(), beerId);
+
+        // an unconditional PATCH does not know the version it wrote, a read after the UPDATE may already see a
+        // later writer's; its event goes out without a version rather than paying a query for a wrong one
+        Long version = expectedVersion != null ? Long.valueOf(expectedVersion + 1) : null;
+        beerChangeFeed.updated(beerId, version, attributes);
+
+        return version;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public BeerPagedList listBeers(int pageNumber, int pageSize, boolean withCount) {
+        PageRequest pageRequest = PageRequest.of(pageNumber, pageSize, BEER_ORDER);
+
+        if (withCount) {
+            long count = countBeers();
+            Page<Beer> page = beerRepository.findAll(pageRequest);
+
+            return new BeerPagedList(beerMapper.BeersToBeerDTOs(page.getContent()), pageRequest, count, nextCursor(page));
+        }
+
+        return toPagedList(beerRepository.findAllBy(pageRequest), pageRequest);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public BeerPagedList listBeersAfter(BeerPageCursor cursor, int pageSize) {
+        PageRequest pageRequest = PageRequest.of(0, pageSize, BEER_ORDER);
+
+        return toPagedList(beerRepository.findAllAfter(cursor.getCreatedDate(), cursor.getId(), pageRequest),
+                pageRequest);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public BeerPagedList searchBeers(BeerSearchCriteria criteria, int pageNumber, int pageSize) {
+        PageRequest pageRequest = PageRequest.of(pageNumber, pageSize, SEARCH_ORDER);
+        Page<Beer> page = beerRepository.findAll(toSpecification(criteria), pageRequest);
+
+        return new BeerPagedList(beerMapper.BeersToBeerDTOs(page.getContent()), pageRequest, page.getTotalElements());
+    }
+
+    @Override
+    public List<BeerNameSuggestion> suggestBeerNames(String query, int limit) {
+        return beerNameIndex.suggest(query, limit);
+    }
+
+    // every record ends with a newline, the last one as well; a root value separator would only go in between
+    @Transactional(readOnly = true)
+    @Override
+    public void exportBeers(OutputStream outputStream) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(BeerDTO.class)
+                .withRootValueSeparator("")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (Stream<Beer> beers = beerRepository.streamAll();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+
+            beers.forEach(beer -> {
+                try {
+                    writer.writeValue(generator, beerMapper.BeerToBeerDTO(beer));
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                beerRepository.detach(beer);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // every filter is a sargable predicate on an indexed column, except a name match with CONTAINS
+    private static Specification<Beer> toSpecification(BeerSearchCriteria criteria) {
+        return (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>(4);
+
+            if (StringUtils.hasText(criteria.getBeerName())) {
+                String beerName = escapeLike(criteria.getBeerName());
+
+                predicates.add(criteria.getNameMatch() == BeerSearchCriteria.NameMatch.CONTAINS
+                        ? criteriaBuilder.like(criteriaBuilder.lower(root.get("beerName")),
+                                "%" + beerName.toLowerCase(Locale.ROOT) + "%", '\\')
+                        : criteriaBuilder.like(root.get("beerName"), beerName + "%", '\\'));
+            }
+            if (criteria.getBeerStyle() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("beerStyle"), criteria.getBeerStyle().name()));
+            }
+            if (criteria.getMinPrice() != null) {
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("price"), criteria.getMinPrice()));
+            }
+            if (criteria.getMaxPrice() != null) {
+                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("price"), criteria.getMaxPrice()));
+            }
+
+            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    // where the UPDATE ran: the replica may not have the beer yet, nor its last version
+    private Long versionOnPrimary(UUID beerId) {
+        boolean pinned = PrimaryPin.isPinned();
+        PrimaryPin.pin();
+
+        try {
+            return beerRepository.findVersionById(beerId)
+                    .orElseThrow(() -> new NotFoundException("Beer not found: " + beerId));
+        } finally {
+            if (!pinned) {
+                PrimaryPin.unpin();
+            }
+        }
+    }
+
+    private long countBeers() {
+        long count = beerCountCache.getIfFresh();
+
+        if (count < 0) {
+            count = beerRepository.count();
+            beerCountCache.put(count);
+        }
+
+        return count;
+    }
+
+    // without a count the total is only a lower bound, large enough for hasNext() to be right
+    private BeerPagedList toPagedList(Slice<Beer> slice, PageRequest pageRequest) {
+        long total = pageRequest.getOffset() + slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0);
+
+        return new BeerPagedList(beerMapper.BeersToBeerDTOs(slice.getContent()), pageRequest, total, nextCursor(slice));
+    }
+
+    private String nextCursor(Slice<Beer> slice) {
+        if (!slice.hasNext() || !slice.hasContent()) {
+            return null;
+        }
+
+        Beer last = slice.getContent().get(slice.getNumberOfElements() - 1);
+
+        return new BeerPageCursor(last.getCreatedDate(), last.getId()).encode();
+    }
+}
@@ -0,0 +1,253 @@
+package com.eigenbaumarkt.restdocsexample.services;
+
+import com.eigenbaumarkt.restdocsexample.repositories.BeerRepository;
+import com.eigenbaumarkt.restdocsexample.repositories.BeerUpc;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+// in-memory UPC -> beer id lookup for barcode scanners; an open addressing hash table over primitive arrays, so
+// neither the keys nor the ids are boxed: 24 bytes per slot, a HashMap<Long, UUID> needs about 90 per entry.
+// Loaded on startup and kept current by the services writing beers; an entry may be stale after its beer got a
+// new UPC, BeerServiceImpl checks the UPC of the beer it finds and drops such entries
+@Slf4j
+@Component
+public class BeerUpcIndex implements MeterBinder {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final BeerRepository beerRepository;
+
+    // readers do not lock: they read optimistically and only retry under the read lock if a write came in between
+    private final StampedLock lock = new StampedLock();
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+
+    public BeerUpcIndex(BeerRepository beerRepository) {
+        this.beerRepository = beerRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.nanoTime();
+        List<BeerUpc> beerUpcs = beerRepository.findAllUpcsBy();
+
+        long stamp = lock.writeLock();
+        try {
+            // sized once up front instead of growing step by step while loading
+            table = table.resize(Table.capacityFor(table.size + beerUpcs.size()));
+            beerUpcs.forEach(beerUpc -> table.put(beerUpc.getUpc(), beerUpc.getId()));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        log.info("Indexed {} beer UPCs in {} ms, {} KiB for {} slots", beerUpcs.size(),
+                (System.nanoTime() - start) / 1_000_000, footprintBytes() / 1024, table.capacity());
+    }
+
+    // null if the UPC is not indexed
+    public UUID get(long upc) {
+        long stamp = lock.tryOptimisticRead();
+        UUID beerId = table.get(upc);
+
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                beerId = table.get(upc);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        return beerId;
+    }
+
+    public void put(Long upc, UUID beerId) {
+        if (upc == null || beerId == null) {
+            return;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            if (table.isFull()) {
+                table = table.resize(table.capacity() * 2);
+            }
+            table.put(upc, beerId);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // only if the UPC still points to that beer, it may have been given to another one meanwhile
+    public void remove(Long upc, UUID beerId) {
+        if (upc == null) {
+            return;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            table.remove(upc, beerId);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        return table.size;
+    }
+
+    // the three arrays, including their headers
+    public long footprintBytes() {
+        return 3 * (16 + 8L * table.capacity());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("beer.upc-index.size", this, BeerUpcIndex::size)
+                .description("UPCs in the in-memory UPC index")
+                .register(registry);
+        Gauge.builder("beer.upc-index.memory", this, BeerUpcIndex::footprintBytes)
+                .description("Heap used by the arrays of the UPC index")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    // linear probing over parallel arrays; a slot is free while its id is 0/0, the nil UUID is never generated
+    private static final class Table {
+
+        // at most 70 % of the slots are used, probe sequences stay short
+        private static final int MAX_LOAD_PERCENT = 70;
+        private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+        private final long[] upcs;
+        private final long[] mostSigBits;
+        private final long[] leastSigBits;
+        private final int mask;
+        private final int shift;
+        private int size;
+
+        private Table(int capacity) {
+            upcs = new long[capacity];
+            mostSigBits = new long[capacity];
+            leastSigBits = new long[capacity];
+            mask = capacity - 1;
+            shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        }
+
+        // the next power of two keeping the load below MAX_LOAD_PERCENT
+        private static int capacityFor(int entries) {
+            int capacity = INITIAL_CAPACITY;
+
+            while ((long) capacity * MAX_LOAD_PERCENT / 100 < entries) {
+                capacity *= 2;
+            }
+
+            return capacity;
+        }
+
+        private int capacity() {
+            return mask + 1;
+        }
+
+        private boolean isFull() {
+            return (long) (size + 1) * 100 > (long) capacity() * MAX_LOAD_PERCENT;
+        }
+
+        // UPCs are mostly sequential, Fibonacci hashing spreads them over the table
+        private int home(long upc) {
+            return (int) ((upc * GOLDEN_RATIO) >>> shift);
+        }
+
+        private boolean isFree(int slot) {
+            return mostSigBits[slot] == 0 && leastSigBits[slot] == 0;
+        }
+
+        // bounded by the capacity: an optimistic reader may see the table in the middle of a write
+        private UUID get(long upc) {
+            for (int i = 0, slot = home(upc); i <= mask && !isFree(slot); i++, slot = (slot + 1) & mask) {
+                if (upcs[slot] == upc) {
+                    long most = mostSigBits[slot];
+                    long least = leastSigBits[slot];
+
+                    return most == 0 && least == 0 ? null : new UUID(most, least);
+                }
+            }
+
+            return null;
+        }
+
+        private void put(long upc, UUID beerId) {
+            put(upc, beerId.getMostSignificantBits(), beerId.getLeastSignificantBits());
+        }
+
+        private void put(long upc, long most, long least) {
+            int slot = home(upc);
+
+            while (!isFree(slot) && upcs[slot] != upc) {
+                slot = (slot + 1) & mask;
+            }
+
+            if (isFree(slot)) {
+                size++;
+            }
+
+            upcs[slot] = upc;
+            mostSigBits[slot] = most;
+            leastSigBits[slot] = least;
+        }
+
+        // backward shift deletion: the entries after the freed slot move up if that keeps them reachable,
+        // so there are no tombstones to skip or clean up
+        private void remove(long upc, UUID beerId) {
+            int slot = home(upc);
+
+            while (!isFree(slot) && upcs[slot] != upc) {
+                slot = (slot + 1) & mask;
+            }
+
+            if (isFree(slot) || (beerId != null && (mostSigBits[slot] != beerId.getMostSignificantBits()
+                    || leastSigBits[slot] != beerId.getLeastSignificantBits()))) {
+                return;
+            }
+
+            int gap = slot;
+
+            for (int next = (gap + 1) & mask; !isFree(next); next = (next + 1) & mask) {
+                if (((next - home(upcs[next])) & mask) >= ((next - gap) & mask)) {
+                    upcs[gap] = upcs[next];
+                    mostSigBits[gap] = mostSigBits[next];
+                    leastSigBits[gap] = leastSigBits[next];
+                    gap = next;
+                }
+            }
+
+            upcs[gap] = 0;
+            mostSigBits[gap] = 0;
+            leastSigBits[gap] = 0;
+            size--;
+        }
+
+        private Table resize(int capacity) {
+            if (capacity <= capacity()) {
+                return this;
+            }
+
+            Table resized = new Table(capacity);
+
+            for (int slot = 0; slot <= mask; slot++) {
+                if (!isFree(slot)) {
+                    resized.put(upcs[slot], mostSigBits[slot], leastSigBits[slot]);
+                }
+            }
+
+            return resized;
+        }
+    }
+}
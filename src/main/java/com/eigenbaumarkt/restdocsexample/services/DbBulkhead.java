@@ -0,0 +1,182 @@
+package com.eigenbaumarkt.restdocsexample.services;
+
+import com.eigenbaumarkt.restdocsexample.datasource.PrimaryPin;
+import com.eigenbaumarkt.restdocsexample.metrics.QueryCount;
+import com.eigenbaumarkt.restdocsexample.web.controller.ServiceUnavailableException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// limits the requests working with the database to the size of the connection pool; a request waits at most
+// beer.db-bulkhead.timeout for its turn and fails with 503 after that instead of piling up. With a replica (see
+// ReplicaConfig) writes and reads pinned to the primary also take one of the
+// beer.db-bulkhead.primary-max-concurrent-calls permits, they must not outnumber the connections of the primary
+@Component
+public class DbBulkhead implements DisposableBean {
+
+    private final Semaphore permits;
+    private final Semaphore primaryPermits;
+    private final Duration timeout;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledThreadPoolExecutor timeouts;
+
+    public DbBulkhead(@Value("${beer.db-bulkhead.max-concurrent-calls:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrentCalls,
+                      @Value("${beer.db-bulkhead.primary-max-concurrent-calls:0}") int primaryMaxConcurrentCalls,
+                      @Value("${beer.db-bulkhead.queue-capacity:100}") int queueCapacity,
+                      @Value("${beer.db-bulkhead.timeout:2s}") Duration timeout) {
+        this.permits = new Semaphore(maxConcurrentCalls);
+        // 0: a single pool, nothing to limit apart from the calls as a whole
+        this.primaryPermits = new Semaphore(primaryMaxConcurrentCalls > 0
+                ? primaryMaxConcurrentCalls : maxConcurrentCalls);
+        this.timeout = timeout;
+
+        // Java 13 has no virtual threads: as many platform threads as connections, started on demand
+        this.executor = new ThreadPoolExecutor(maxConcurrentCalls, maxConcurrentCalls, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("db-bulkhead-"));
+        this.executor.allowCoreThreadTimeOut(true);
+
+        this.timeouts = new ScheduledThreadPoolExecutor(1, new CustomizableThreadFactory("db-bulkhead-timeout-"));
+        // most tasks finish long before their timeout, their cancelled timers must not pile up in the queue
+        this.timeouts.setRemoveOnCancelPolicy(true);
+    }
+
+    // blocks the calling thread until a permit is free or the timeout is over
+    public <T> T call(Supplier<T> supplier) {
+        return call(false, supplier);
+    }
+
+    // for requests writing to the database, they need the primary
+    public <T> T callWrite(Supplier<T> supplier) {
+        return call(true, supplier);
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> supplier) {
+        return submit(false, supplier);
+    }
+
+    public <T> CompletableFuture<T> submitWrite(Supplier<T> supplier) {
+        return submit(true, supplier);
+    }
+
+    private <T> T call(boolean write, Supplier<T> supplier) {
+        boolean primary = write || PrimaryPin.isPinned();
+
+        if (!tryAcquire(primary, timeout.toNanos())) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new ServiceUnavailableException("Interrupted while waiting for database capacity");
+            }
+            throw noCapacity();
+        }
+
+        try {
+            return supplier.get();
+        } finally {
+            release(primary);
+        }
+    }
+
+    // runs on a bulkhead thread. A task that has not started within the timeout (counted from submission) is
+    // dropped and the future fails with 503; one that has started is not reported as failed and runs to its end,
+    // a write must not commit after its client was told to try again
+    private <T> CompletableFuture<T> submit(boolean write, Supplier<T> supplier) {
+        // the statements run on the bulkhead thread still count for the request, and read where it reads
+        QueryCount queryCount = QueryCount.current();
+        boolean pinnedToPrimary = PrimaryPin.isPinned();
+        boolean primary = write || pinnedToPrimary;
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // set by whichever comes first, the task starting or the timeout
+        AtomicBoolean decided = new AtomicBoolean();
+
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                if (!tryAcquire(primary, deadline - System.nanoTime())) {
+                    if (decided.compareAndSet(false, true)) {
+                        result.completeExceptionally(noCapacity());
+                    }
+                    return;
+                }
+
+                try {
+                    if (!decided.compareAndSet(false, true)) {
+                        return;
+                    }
+
+                    QueryCount.bind(queryCount);
+                    if (pinnedToPrimary) {
+                        PrimaryPin.pin();
+                    }
+                    try {
+                        result.complete(supplier.get());
+                    } catch (Throwable e) {
+                        result.completeExceptionally(e);
+                    } finally {
+                        QueryCount.unbind();
+                        PrimaryPin.unpin();
+                    }
+                } finally {
+                    release(primary);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new ServiceUnavailableException("Database bulkhead queue is full"));
+        }
+
+        ScheduledFuture<?> timer = timeouts.schedule(() -> {
+            if (decided.compareAndSet(false, true)) {
+                // frees its place in the queue right away
+                executor.remove((Runnable) task);
+                result.completeExceptionally(noCapacity());
+            }
+        }, timeout.toNanos(), TimeUnit.NANOSECONDS);
+
+        result.whenComplete((value, e) -> timer.cancel(false));
+
+        return result;
+    }
+
+    // a permit of the primary as well if needed, within the same time; false if either is not free in time
+    private boolean tryAcquire(boolean primary, long nanos) {
+        long deadline = System.nanoTime() + nanos;
+
+        try {
+            if (!permits.tryAcquire(Math.max(nanos, 0), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+            if (primary && !primaryPermits.tryAcquire(Math.max(deadline - System.nanoTime(), 0),
+                    TimeUnit.NANOSECONDS)) {
+                permits.release();
+                return false;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void release(boolean primary) {
+        if (primary) {
+            primaryPermits.release();
+        }
+        permits.release();
+    }
+
+    private ServiceUnavailableException noCapacity() {
+        return new ServiceUnavailableException("No database capacity within " + timeout);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+        timeouts.shutdownNow();
+    }
+}
@@ -0,0 +1,23 @@
+package com.eigenbaumarkt.restdocsexample.services;
+
+import com.eigenbaumarkt.restdocsexample.web.model.BeerDTO;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerPageCursor;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerPagedList;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+// BeerService without blocking calls, for the reactive profile
+public interface ReactiveBeerService {
+
+    Mono<BeerDTO> getBeerById(UUID beerId);
+
+    Mono<BeerDTO> saveNewBeer(BeerDTO beerDTO);
+
+    // expectedVersion is optional, empty if there is no such beer
+    Mono<BeerDTO> updateBeerById(UUID beerId, BeerDTO beerDTO, Long expectedVersion);
+
+    Mono<BeerPagedList> listBeers(int pageNumber, int pageSize, boolean withCount);
+
+    Mono<BeerPagedList> listBeersAfter(BeerPageCursor cursor, int pageSize);
+}
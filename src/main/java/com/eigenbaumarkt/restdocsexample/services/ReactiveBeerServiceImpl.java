@@ -0,0 +1,131 @@
+package com.eigenbaumarkt.restdocsexample.services;
+
+import com.eigenbaumarkt.restdocsexample.domain.Beer;
+import com.eigenbaumarkt.restdocsexample.domain.TimeOrderedUUIDGenerator;
+import com.eigenbaumarkt.restdocsexample.repositories.ReactiveBeerRepository;
+import com.eigenbaumarkt.restdocsexample.web.controller.NotFoundException;
+import com.eigenbaumarkt.restdocsexample.web.controller.PreconditionFailedException;
+import com.eigenbaumarkt.restdocsexample.web.mappers.BeerMapper;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerDTO;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerPageCursor;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerPagedList;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+// Hibernate fills in id, version and timestamps for the servlet API, here the service does
+@Profile("reactive")
+@RequiredArgsConstructor
+@Service
+public class ReactiveBeerServiceImpl implements ReactiveBeerService {
+
+    private static final Sort BEER_ORDER = Sort.by("createdDate", "id");
+
+    private final ReactiveBeerRepository reactiveBeerRepository;
+    private final BeerMapper beerMapper;
+    private final BeerCountCache beerCountCache;
+
+    @Override
+    public Mono<BeerDTO> getBeerById(UUID beerId) {
+        return reactiveBeerRepository.findById(beerId)
+                .map(beerMapper::BeerToBeerDTO)
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("Beer not found: " + beerId)));
+    }
+
+    @Override
+    public Mono<BeerDTO> saveNewBeer(BeerDTO beerDTO) {
+        Beer beer = beerMapper.BeerDTOToBeer(beerDTO);
+        Timestamp now = Timestamp.from(Instant.now());
+
+        beer.setId(TimeOrderedUUIDGenerator.timeOrderedUUID());
+        beer.setVersion(0L);
+        beer.setCreatedDate(now);
+        beer.setLastModifiedDate(now);
+
+        return reactiveBeerRepository.insert(beer).map(beerMapper::BeerToBeerDTO);
+    }
+
+    @Override
+    public Mono<BeerDTO> updateBeerById(UUID beerId, BeerDTO beerDTO, Long expectedVersion) {
+        return reactiveBeerRepository.findById(beerId)
+                .flatMap(beer -> {
+                    if (expectedVersion != null && !expectedVersion.equals(beer.getVersion())) {
+                        return Mono.error(new PreconditionFailedException("Beer " + beerId + " has version "
+                                + beer.getVersion()));
+                    }
+
+                    long version = beer.getVersion();
+
+                    beerMapper.updateBeerFromBeerDTO(beerDTO, beer);
+                    beer.setLastModifiedDate(Timestamp.from(Instant.now()));
+
+                    // no row if the beer was changed after findById
+                    return reactiveBeerRepository.update(beer, version).flatMap(updated -> {
+                        if (updated == 0) {
+                            return Mono.error(expectedVersion != null
+                                    ? new PreconditionFailedException("Beer " + beerId + " was changed concurrently")
+                                    : new OptimisticLockingFailureException("Beer " + beerId + " was changed concurrently"));
+                        }
+
+                        beer.setVersion(version + 1);
+
+                        return Mono.just(beerMapper.BeerToBeerDTO(beer));
+                    });
+                });
+    }
+
+    @Override
+    public Mono<BeerPagedList> listBeers(int pageNumber, int pageSize, boolean withCount) {
+        PageRequest pageRequest = PageRequest.of(pageNumber, pageSize, BEER_ORDER);
+        Flux<Beer> beers = reactiveBeerRepository.findPage(pageSize + 1, pageRequest.getOffset());
+
+        if (withCount) {
+            return Mono.zip(beers.collectList(), countBeers())
+                    .map(pageAndCount -> toPagedList(pageAndCount.getT1(), pageRequest, pageAndCount.getT2()));
+        }
+
+        return beers.collectList().map(page -> toPagedList(page, pageRequest, -1));
+    }
+
+    @Override
+    public Mono<BeerPagedList> listBeersAfter(BeerPageCursor cursor, int pageSize) {
+        return reactiveBeerRepository.findPageAfter(cursor.getCreatedDate().toLocalDateTime(), cursor.getId(), pageSize + 1)
+                .collectList()
+                .map(page -> toPagedList(page, PageRequest.of(0, pageSize, BEER_ORDER), -1));
+    }
+
+    private Mono<Long> countBeers() {
+        return Mono.defer(() -> {
+            long count = beerCountCache.getIfFresh();
+
+            return count >= 0 ? Mono.just(count) : reactiveBeerRepository.count().doOnNext(beerCountCache::put);
+        });
+    }
+
+    // like a Slice: one row more than the page size is read to find out about a next page; without a count
+    // the total is only a lower bound, large enough for hasNext() to be right
+    private BeerPagedList toPagedList(List<Beer> beers, PageRequest pageRequest, long count) {
+        boolean hasNext = beers.size() > pageRequest.getPageSize();
+        List<Beer> content = hasNext ? beers.subList(0, pageRequest.getPageSize()) : beers;
+
+        long total = count >= 0 ? count : pageRequest.getOffset() + content.size() + (hasNext ? 1 : 0);
+        String nextCursor = null;
+
+        if (hasNext && !content.isEmpty()) {
+            Beer last = content.get(content.size() - 1);
+            nextCursor = new BeerPageCursor(last.getCreatedDate(), last.getId()).encode();
+        }
+
+        return new BeerPagedList(beerMapper.BeersToBeerDTOs(content), pageRequest, total, nextCursor);
+    }
+}
@@ -1,52 +1,338 @@
 package com.eigenbaumarkt.restdocsexample.web.controller;
 
-import com.eigenbaumarkt.restdocsexample.repositories.BeerRepository;
-import com.eigenbaumarkt.restdocsexample.web.mappers.BeerMapper;
+import com.eigenbaumarkt.restdocsexample.repositories.BeerRevision;
+import com.eigenbaumarkt.restdocsexample.services.BeerBatchService;
+import com.eigenbaumarkt.restdocsexample.services.BeerChangeFeed;
+import com.eigenbaumarkt.restdocsexample.services.BeerInventoryService;
+import com.eigenbaumarkt.restdocsexample.services.BeerService;
+import com.eigenbaumarkt.restdocsexample.services.DbBulkhead;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerBatchResult;
 import com.eigenbaumarkt.restdocsexample.web.model.BeerDTO;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerInventoryAdjustmentDTO;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerNameSuggestion;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerPageCursor;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerPagedList;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerPatchDTO;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerSearchCriteria;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 
+// the servlet API; the reactive profile serves the same contract with ReactiveBeerController
+@Profile("!reactive")
 @RequiredArgsConstructor
 @RequestMapping("/api/v1/beer")
 @RestController
 public class BeerController {
 
-    // TODO: think about a Service layer between Repository and Controller
+    static final int DEFAULT_PAGE_SIZE = 25;
+    static final int MAX_PAGE_SIZE = 1000;
+    // ids in the query string, 100 of them take about 3.7 kB of the 8 kB Tomcat allows for the request line
+    static final int MAX_IDS = 100;
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
-    private final BeerMapper beerMapper;
-    private final BeerRepository beerRepository;
+    private final BeerService beerService;
+    private final BeerBatchService beerBatchService;
+    private final BeerInventoryService beerInventoryService;
+    private final DbBulkhead dbBulkhead;
+    private final BeerChangeFeed beerChangeFeed;
+
+    // opt-in: the handlers that need the database return a CompletableFuture completed by the DbBulkhead,
+    // so the Tomcat worker thread is free while the database is busy
+    @Value("${beer.async.enabled:false}")
+    private boolean asyncEnabled;
+
+    // batches pass neither the limiter nor the bulkhead timeout, their size is what bounds them
+    @Value("${beer.batch.max-items:10000}")
+    private int maxBatchItems;
+
+    // the handlers below return a ResponseEntity, or a CompletableFuture of one in async mode
+
+    @GetMapping
+    public Object listBeers(@RequestParam(value = "pageNumber", required = false) Integer pageNumber,
+                            @RequestParam(value = "pageSize", required = false) Integer pageSize,
+                            @RequestParam(value = "cursor", required = false) String cursor,
+                            @RequestParam(value = "withCount", defaultValue = "true") boolean withCount){
+
+        if (pageNumber == null || pageNumber < 0) {
+            pageNumber = 0;
+        }
+
+        if (pageSize == null || pageSize < 1) {
+            pageSize = DEFAULT_PAGE_SIZE;
+        } else if (pageSize > MAX_PAGE_SIZE) {
+            pageSize = MAX_PAGE_SIZE;
+        }
+
+        int size = pageSize;
+
+        if (cursor != null) {
+            BeerPageCursor pageCursor;
+            try {
+                pageCursor = BeerPageCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+            }
+
+            return execute(() -> new ResponseEntity<>(beerService.listBeersAfter(pageCursor, size), HttpStatus.OK));
+        }
+
+        int number = pageNumber;
+
+        return execute(() -> new ResponseEntity<>(beerService.listBeers(number, size, withCount), HttpStatus.OK));
+    }
+
+    // multi-get: the beers with these ids in that order, unknown ids are left out; the ones not cached are read
+    // with a single query
+    @GetMapping(params = "ids")
+    public Object getBeersByIds(@RequestParam("ids") List<UUID> beerIds){
+
+        if (beerIds.size() > MAX_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_IDS + " ids");
+        }
+
+        return execute(() -> new ResponseEntity<>(beerService.getBeersByIds(beerIds), HttpStatus.OK));
+    }
+
+    // filters on name, style and price range; paged like the listing, ordered by name
+    @GetMapping("/search")
+    public Object searchBeers(@Validated BeerSearchCriteria criteria,
+                              @RequestParam(value = "pageNumber", defaultValue = "0") int pageNumber,
+                              @RequestParam(value = "pageSize", defaultValue = "" + DEFAULT_PAGE_SIZE) int pageSize){
+
+        int number = Math.max(pageNumber, 0);
+        int size = pageSize < 1 ? DEFAULT_PAGE_SIZE : Math.min(pageSize, MAX_PAGE_SIZE);
+
+        return execute(() -> new ResponseEntity<>(beerService.searchBeers(criteria, number, size), HttpStatus.OK));
+    }
+
+    // served from memory, so no bulkhead
+    @GetMapping("/search/autocomplete")
+    public ResponseEntity<List<BeerNameSuggestion>> autocompleteBeerNames(@RequestParam("q") String query,
+                                                                           @RequestParam(value = "limit", defaultValue = "10") int limit){
+
+        return new ResponseEntity<>(beerService.suggestBeerNames(query, Math.min(Math.max(limit, 1), 100)), HttpStatus.OK);
+    }
+
+    // for barcode scanners: BeerUpcIndex resolves the UPC, so a cached beer is answered without the database
+    @GetMapping("/upc/{upc}")
+    public Object getBeerByUpc(@PathVariable("upc") long upc){
+
+        Supplier<ResponseEntity<BeerDTO>> handler = () -> {
+            BeerDTO beerDTO = beerService.getBeerByUpc(upc);
+
+            return withETag(ResponseEntity.ok(), beerDTO).body(beerDTO);
+        };
+
+        return beerService.isBeerCachedByUpc(upc) ? handler.get() : execute(handler);
+    }
 
     @GetMapping("/{beerId}")
-    public ResponseEntity<BeerDTO> getBeerById(@PathVariable("beerId") UUID beerId){
+    public Object getBeerById(@PathVariable("beerId") UUID beerId,
+                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+
+        Supplier<ResponseEntity<BeerDTO>> handler = () -> {
+            // a matching If-None-Match is answered from version and stock alone, without mapping or serializing the beer
+            if (ifNoneMatch != null) {
+                BeerRevision revision = beerService.getBeerRevision(beerId);
+                String eTag = BeerETags.of(revision.getVersion(), revision.getQuantityOnHand());
+
+                if (BeerETags.matchesWeakly(ifNoneMatch, eTag)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+                }
+            }
 
-        return new ResponseEntity<>(beerMapper.BeerToBeerDTO(beerRepository.findById(beerId).get()), HttpStatus.OK);
+            BeerDTO beerDTO = beerService.getBeerById(beerId);
+
+            return withETag(ResponseEntity.ok(), beerDTO).body(beerDTO);
+        };
+
+        // cached beers do not need the database, they are answered right away
+        return beerService.isBeerCached(beerId) ? handler.get() : execute(handler);
     }
 
     @PostMapping
-    public ResponseEntity saveNewBeer(@RequestBody @Validated BeerDTO beerDTO){
+    public Object saveNewBeer(@RequestBody @Validated BeerDTO beerDTO){
 
-        beerRepository.save(beerMapper.BeerDTOToBeer(beerDTO));
+        return executeWrite(() -> {
+            beerService.saveNewBeer(beerDTO);
 
-        return new ResponseEntity(HttpStatus.CREATED);
+            return new ResponseEntity<>(HttpStatus.CREATED);
+        });
     }
 
+    // with If-Match the update is only written if the beer still has the version of the ETag, 412 otherwise
+    // (also for an unknown beer, there is no version to match); compared with the row the update is applied to,
+    // a cached version may be stale
     @PutMapping("/{beerId}")
-    public ResponseEntity updateBeerById(@PathVariable("beerId") UUID beerId, @RequestBody @Validated BeerDTO beerDTO){
-        beerRepository.findById(beerId).ifPresent(beer -> {
-            beer.setBeerName(beerDTO.getBeerName());
-            beer.setBeerStyle(beerDTO.getBeerStyle().name());
-            beer.setPrice(beerDTO.getPrice());
-            beer.setUpc(beerDTO.getUpc());
-
-            beerRepository.save(beer);
+    public Object updateBeerById(@PathVariable("beerId") UUID beerId, @RequestBody @Validated BeerDTO beerDTO,
+                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        Long expectedVersion = ifMatch != null ? BeerETags.versionOf(ifMatch) : null;
+
+        return executeWrite(() -> {
+            Optional<BeerDTO> updatedBeerDTO = beerService.updateBeerById(beerId, beerDTO, expectedVersion);
+
+            if (!updatedBeerDTO.isPresent() && expectedVersion != null) {
+                throw new PreconditionFailedException("Beer not found: " + beerId);
+            }
+
+            return updatedBeerDTO
+                    .map(updated -> withETag(ResponseEntity.status(HttpStatus.NO_CONTENT), updated).<Void>build())
+                    .orElseGet(() -> new ResponseEntity<>(HttpStatus.NO_CONTENT));
         });
+    }
+
+    // only the fields sent are written, in a single versioned UPDATE; 404 for an unknown beer and
+    // 412 if If-Match names another version
+    @PatchMapping("/{beerId}")
+    public Object patchBeerById(@PathVariable("beerId") UUID beerId, @RequestBody @Validated BeerPatchDTO beerPatchDTO,
+                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        Long expectedVersion = ifMatch != null ? BeerETags.versionOf(ifMatch) : null;
+
+        return executeWrite(() -> {
+            Long version = beerService.patchBeerById(beerId, beerPatchDTO, expectedVersion);
+
+            if (version != null) {
+                return ResponseEntity.noContent().eTag(BeerETags.of(version)).build();
+            }
+
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        });
+    }
+
+    // EVENTUAL (default) is buffered in memory and answered with 202, STRONG is written right away and answered
+    // with the new quantity on hand, or 409 if the stock does not cover a withdrawal
+    @PostMapping("/{beerId}/inventory/adjust")
+    public Object adjustInventory(@PathVariable("beerId") UUID beerId,
+                                  @RequestBody @Validated BeerInventoryAdjustmentDTO adjustmentDTO){
+
+        if (adjustmentDTO.getConsistency() == BeerInventoryAdjustmentDTO.Consistency.STRONG) {
+            return executeWrite(() -> ResponseEntity.ok(beerInventoryService.adjustNow(beerId, adjustmentDTO.getDelta())));
+        }
+
+        beerInventoryService.adjustEventually(beerId, adjustmentDTO.getDelta());
+
+        return new ResponseEntity<>(HttpStatus.ACCEPTED);
+    }
+
+    // items are validated one by one, so an invalid beer does not fail the whole batch
+    @PostMapping("/batch")
+    public ResponseEntity<List<BeerBatchResult>> saveNewBeers(@RequestBody List<BeerDTO> beerDTOs){
+        checkBatchSize(beerDTOs.size());
+
+        return new ResponseEntity<>(beerBatchService.saveNewBeers(beerDTOs), HttpStatus.OK);
+    }
+
+    @PutMapping("/batch")
+    public ResponseEntity<List<BeerBatchResult>> updateBeers(@RequestBody Map<UUID, BeerDTO> beerDTOs){
+        checkBatchSize(beerDTOs.size());
+
+        return new ResponseEntity<>(beerBatchService.updateBeers(beerDTOs), HttpStatus.OK);
+    }
+
+    private void checkBatchSize(int items) {
+        if (items > maxBatchItems) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "At most " + maxBatchItems + " beers per batch");
+        }
+    }
+
+    // the body is written on an async thread while the beers are read, gzipped if the client accepts it
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportBeers(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding){
+
+        boolean gzip = acceptsGzip(acceptEncoding);
+
+        StreamingResponseBody body = outputStream -> {
+            try (OutputStream out = gzip ? new GZIPOutputStream(outputStream, 8192) : outputStream) {
+                beerService.exportBeers(out);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        return response.body(body);
+    }
+
+    // creates and updates as server-sent events, after the Last-Event-ID if the client sends one
+    // (EventSource does so when it reconnects); no bulkhead, the events come from memory
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId){
+
+        return beerChangeFeed.subscribe(lastEventId);
+    }
+
+    // runs the handler behind the DbBulkhead, on the request thread or (async mode) on a bulkhead thread
+    private Object execute(Supplier<? extends ResponseEntity<?>> handler) {
+        return asyncEnabled ? dbBulkhead.submit(handler) : dbBulkhead.call(handler);
+    }
+
+    // like execute, for handlers writing to the primary
+    private Object executeWrite(Supplier<? extends ResponseEntity<?>> handler) {
+        return asyncEnabled ? dbBulkhead.submitWrite(handler) : dbBulkhead.callWrite(handler);
+    }
+
+    // "gzip" (or "x-gzip") listed with a q-value above 0, "gzip;q=0" asks not to be sent gzip
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (String coding : StringUtils.commaDelimitedListToStringArray(acceptEncoding)) {
+            String[] nameAndParameters = coding.split(";");
+            String name = nameAndParameters[0].trim();
+
+            if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip")) {
+                return qValue(nameAndParameters) > 0;
+            }
+        }
+
+        return false;
+    }
+
+    // 1 without a q parameter, 0 if it cannot be parsed
+    private static double qValue(String[] nameAndParameters) {
+        for (int i = 1; i < nameAndParameters.length; i++) {
+            String parameter = nameAndParameters[i].trim();
+
+            if (parameter.length() > 2 && parameter.substring(0, 2).equalsIgnoreCase("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+
+        return 1;
+    }
 
-        return new ResponseEntity(HttpStatus.NO_CONTENT);
+    private static ResponseEntity.BodyBuilder withETag(ResponseEntity.BodyBuilder response, BeerDTO beerDTO) {
+        return beerDTO.getVersion() != null ? response.eTag(BeerETags.of(beerDTO)) : response;
     }
 
 }
@@ -0,0 +1,84 @@
+package com.eigenbaumarkt.restdocsexample.web.controller;
+
+import com.eigenbaumarkt.restdocsexample.web.model.BeerDTO;
+import org.springframework.util.StringUtils;
+
+// strong ETags derived from Beer.version and the quantity on hand: "3.19", or "3" without a stock. Inventory
+// adjustments do not change the version but do change the representation. If-Match only compares the version,
+// PUT and PATCH never write the stock
+final class BeerETags {
+
+    private BeerETags() {
+    }
+
+    static String of(BeerDTO beerDTO) {
+        return of(beerDTO.getVersion(), beerDTO.getQuantityOnHand());
+    }
+
+    // the stock is not known after a PATCH, the next GET gets the full ETag
+    static String of(Number version) {
+        return of(version, null);
+    }
+
+    static String of(Number version, Number quantityOnHand) {
+        if (version == null) {
+            return null;
+        }
+
+        return "\"" + version + (quantityOnHand != null ? "." + quantityOnHand : "") + "\"";
+    }
+
+    // If-None-Match uses the weak comparison, W/"3.19" matches as well
+    static boolean matchesWeakly(String ifNoneMatch, String current) {
+        for (String eTag : StringUtils.commaDelimitedListToStringArray(ifNoneMatch)) {
+            eTag = eTag.trim();
+
+            if (eTag.startsWith("W/")) {
+                eTag = eTag.substring(2);
+            }
+
+            if ("*".equals(eTag) || eTag.equals(current)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // the version of a single strong ETag, null for "*"
+    static Long versionOf(String ifMatch) {
+        String eTag = ifMatch.trim();
+
+        if ("*".equals(eTag)) {
+            return null;
+        }
+
+        if (eTag.length() < 3 || !eTag.startsWith("\"") || !eTag.endsWith("\"")) {
+            throw new PreconditionFailedException("If-Match needs a single strong ETag: " + ifMatch);
+        }
+
+        Long version = parseVersion(eTag);
+
+        if (version == null) {
+            throw new PreconditionFailedException("Unknown ETag: " + ifMatch);
+        }
+
+        return version;
+    }
+
+    // null if it is none of ours
+    private static Long parseVersion(String eTag) {
+        if (eTag.length() < 3 || !eTag.startsWith("\"") || !eTag.endsWith("\"")) {
+            return null;
+        }
+
+        String value = eTag.substring(1, eTag.length() - 1);
+        int dot = value.indexOf('.');
+
+        try {
+            return Long.valueOf(dot < 0 ? value : value.substring(0, dot));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.eigenbaumarkt.restdocsexample.web.controller;
+
+public class ConflictException extends RuntimeException {
+
+    public ConflictException(String message) {
+        super(message);
+    }
+}
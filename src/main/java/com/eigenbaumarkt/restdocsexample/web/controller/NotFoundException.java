@@ -0,0 +1,8 @@
+package com.eigenbaumarkt.restdocsexample.web.controller;
+
+public class NotFoundException extends RuntimeException {
+
+    public NotFoundException(String message) {
+        super(message);
+    }
+}
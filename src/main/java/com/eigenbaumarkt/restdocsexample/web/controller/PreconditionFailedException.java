@@ -0,0 +1,8 @@
+package com.eigenbaumarkt.restdocsexample.web.controller;
+
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,101 @@
+package com.eigenbaumarkt.restdocsexample.web.controller;
+
+import com.eigenbaumarkt.restdocsexample.services.ReactiveBeerService;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerDTO;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerPageCursor;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerPagedList;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+import static com.eigenbaumarkt.restdocsexample.web.controller.BeerController.DEFAULT_PAGE_SIZE;
+import static com.eigenbaumarkt.restdocsexample.web.controller.BeerController.MAX_PAGE_SIZE;
+
+// the /api/v1/beer contract of BeerController on WebFlux: no thread waits for the database, see ReactiveConfig;
+// batch, patch and export are only served by the servlet API
+@Profile("reactive")
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/beer")
+@RestController
+public class ReactiveBeerController {
+
+    private final ReactiveBeerService reactiveBeerService;
+
+    @GetMapping
+    public Mono<ResponseEntity<BeerPagedList>> listBeers(@RequestParam(value = "pageNumber", required = false) Integer pageNumber,
+                                                         @RequestParam(value = "pageSize", required = false) Integer pageSize,
+                                                         @RequestParam(value = "cursor", required = false) String cursor,
+                                                         @RequestParam(value = "withCount", defaultValue = "true") boolean withCount){
+
+        if (pageNumber == null || pageNumber < 0) {
+            pageNumber = 0;
+        }
+
+        if (pageSize == null || pageSize < 1) {
+            pageSize = DEFAULT_PAGE_SIZE;
+        } else if (pageSize > MAX_PAGE_SIZE) {
+            pageSize = MAX_PAGE_SIZE;
+        }
+
+        Mono<BeerPagedList> page;
+
+        if (cursor != null) {
+            try {
+                page = reactiveBeerService.listBeersAfter(BeerPageCursor.decode(cursor), pageSize);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+            }
+        } else {
+            page = reactiveBeerService.listBeers(pageNumber, pageSize, withCount);
+        }
+
+        return page.map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/{beerId}")
+    public Mono<ResponseEntity<BeerDTO>> getBeerById(@PathVariable("beerId") UUID beerId,
+                                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+
+        return reactiveBeerService.getBeerById(beerId).map(beerDTO -> {
+            String eTag = BeerETags.of(beerDTO);
+
+            if (ifNoneMatch != null && BeerETags.matchesWeakly(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+
+            return withETag(ResponseEntity.ok(), beerDTO).body(beerDTO);
+        });
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<Void>> saveNewBeer(@RequestBody @Validated BeerDTO beerDTO){
+
+        return reactiveBeerService.saveNewBeer(beerDTO)
+                .map(saved -> new ResponseEntity<>(HttpStatus.CREATED));
+    }
+
+    // with If-Match (a single ETag or "*") the update is only written if the beer still has the version of
+    // the ETag, 412 otherwise
+    @PutMapping("/{beerId}")
+    public Mono<ResponseEntity<Void>> updateBeerById(@PathVariable("beerId") UUID beerId, @RequestBody @Validated BeerDTO beerDTO,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+
+        Long expectedVersion = ifMatch != null ? BeerETags.versionOf(ifMatch) : null;
+
+        return reactiveBeerService.updateBeerById(beerId, beerDTO, expectedVersion)
+                .map(updated -> withETag(ResponseEntity.status(HttpStatus.NO_CONTENT), updated).<Void>build())
+                .defaultIfEmpty(new ResponseEntity<>(HttpStatus.NO_CONTENT));
+    }
+
+    private static ResponseEntity.BodyBuilder withETag(ResponseEntity.BodyBuilder response, BeerDTO beerDTO) {
+        return beerDTO.getVersion() != null ? response.eTag(BeerETags.of(beerDTO)) : response;
+    }
+}
@@ -0,0 +1,8 @@
+package com.eigenbaumarkt.restdocsexample.web.controller;
+
+public class ServiceUnavailableException extends RuntimeException {
+
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
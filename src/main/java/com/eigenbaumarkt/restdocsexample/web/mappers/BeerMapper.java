@@ -2,12 +2,34 @@ package com.eigenbaumarkt.restdocsexample.web.mappers;
 
 import com.eigenbaumarkt.restdocsexample.domain.Beer;
 import com.eigenbaumarkt.restdocsexample.web.model.BeerDTO;
+import org.mapstruct.Builder;
+import org.mapstruct.InjectionStrategy;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
 
-@Mapper(uses = {DateMapper.class})
+import java.util.List;
+
+// setters instead of the Lombok builders: one object less per mapped beer
+@Mapper(uses = {DateMapper.class}, builder = @Builder(disableBuilder = true),
+        injectionStrategy = InjectionStrategy.CONSTRUCTOR)
 public interface BeerMapper {
 
     BeerDTO BeerToBeerDTO(Beer beer);
     Beer BeerDTOToBeer(BeerDTO beerDTO);
 
+    // a presized list filled in a plain loop
+    List<BeerDTO> BeersToBeerDTOs(List<Beer> beers);
+
+    // id, version and the timestamps are owned by the database, the stock by the inventory adjustments;
+    // the brewing levels are not part of the DTO
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "createdDate", ignore = true)
+    @Mapping(target = "lastModifiedDate", ignore = true)
+    @Mapping(target = "quantityOnHand", ignore = true)
+    @Mapping(target = "minOnHand", ignore = true)
+    @Mapping(target = "quantityToBrew", ignore = true)
+    void updateBeerFromBeerDTO(BeerDTO beerDTO, @MappingTarget Beer beer);
+
 }
@@ -8,11 +8,12 @@ import java.time.ZoneOffset;
 
 @Component
 public class DateMapper {
+
+    // converts the Timestamp only once: the LocalDateTime is shared by the OffsetDateTime instead of being
+    // rebuilt for every field
     public OffsetDateTime asOffsetDateTime(Timestamp ts){
         if (ts != null){
-            return OffsetDateTime.of(ts.toLocalDateTime().getYear(), ts.toLocalDateTime().getMonthValue(),
-                    ts.toLocalDateTime().getDayOfMonth(), ts.toLocalDateTime().getHour(), ts.toLocalDateTime().getMinute(),
-                    ts.toLocalDateTime().getSecond(), ts.toLocalDateTime().getNano(), ZoneOffset.UTC);
+            return OffsetDateTime.of(ts.toLocalDateTime(), ZoneOffset.UTC);
         } else {
             return null;
         }
@@ -0,0 +1,28 @@
+package com.eigenbaumarkt.restdocsexample.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BeerBatchResult {
+
+    public enum Status {
+        CREATED, UPDATED, INVALID, NOT_FOUND, CONFLICT
+    }
+
+    // position of the item in the request
+    private int index;
+
+    private UUID id;
+    private Long version;
+    private Status status;
+    private List<String> errors;
+}
@@ -0,0 +1,36 @@
+package com.eigenbaumarkt.restdocsexample.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BeerChangeEvent {
+
+    // RESET: events before this one were missed (the client fell too far behind, or the server restarted),
+    // whatever the client keeps of the beers has to be loaded again
+    public enum Type {
+        CREATED, UPDATED, RESET
+    }
+
+    // ascending per server start, the SSE event id is "<epoch>-<sequence>"
+    private long sequence;
+
+    private Type type;
+    private UUID beerId;
+    // null for a PATCH without If-Match, it is written without knowing the version it replaces
+    private Long version;
+
+    // the fields written, with their new values: all of them for CREATED, the ones that differ for UPDATED
+    private Map<String, Object> changes;
+
+    private OffsetDateTime changedAt;
+}
@@ -0,0 +1,33 @@
+package com.eigenbaumarkt.restdocsexample.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BeerInventoryAdjustmentDTO {
+
+    public enum Consistency {
+        // buffered in memory and written with the next flush, no stock check
+        EVENTUAL,
+        // written right away together with the buffered adjustments of the beer, rejected if stock is short
+        STRONG
+    }
+
+    // negative for a withdrawal
+    @NotNull
+    @Min(-1_000_000)
+    @Max(1_000_000)
+    private Integer delta;
+
+    @Builder.Default
+    private Consistency consistency = Consistency.EVENTUAL;
+}
@@ -0,0 +1,19 @@
+package com.eigenbaumarkt.restdocsexample.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BeerInventoryDTO {
+
+    private UUID beerId;
+
+    private Integer quantityOnHand;
+}
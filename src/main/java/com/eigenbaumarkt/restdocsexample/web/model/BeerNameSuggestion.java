@@ -0,0 +1,16 @@
+package com.eigenbaumarkt.restdocsexample.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BeerNameSuggestion {
+
+    private UUID id;
+    private String beerName;
+}
@@ -0,0 +1,39 @@
+package com.eigenbaumarkt.restdocsexample.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+// opaque position of the last beer of a page, ordered by (createdDate, id)
+@Getter
+@AllArgsConstructor
+public class BeerPageCursor {
+
+    private static final String SEPARATOR = "_";
+
+    private final Timestamp createdDate;
+    private final UUID id;
+
+    public String encode() {
+        String raw = createdDate.toInstant().toString() + SEPARATOR + id.toString();
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BeerPageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+
+            return new BeerPageCursor(Timestamp.from(Instant.parse(raw.substring(0, separator))),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page cursor: " + cursor, e);
+        }
+    }
+}
@@ -7,6 +7,9 @@ import java.util.List;
 
 public class BeerPagedList extends PageImpl<BeerDTO> {
 
+    // set on every page that has a next one, offset and keyset paging alike; pass it as "cursor" to get the next page
+    private String nextCursor;
+
     public BeerPagedList(List<BeerDTO> content, Pageable pageable, long total) {
         super(content, pageable, total);
     }
@@ -14,4 +17,13 @@ public class BeerPagedList extends PageImpl<BeerDTO> {
     public BeerPagedList(List<BeerDTO> content) {
         super(content);
     }
+
+    public BeerPagedList(List<BeerDTO> content, Pageable pageable, long total, String nextCursor) {
+        super(content, pageable, total);
+        this.nextCursor = nextCursor;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
 }
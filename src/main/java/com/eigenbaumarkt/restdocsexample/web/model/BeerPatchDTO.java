@@ -0,0 +1,32 @@
+package com.eigenbaumarkt.restdocsexample.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
+import java.math.BigDecimal;
+
+// partial update of a beer, fields left null are not changed
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BeerPatchDTO {
+
+    // @NotBlank would reject leaving it out, null is fine here
+    @Size(min = 3, max = 100)
+    @Pattern(regexp = "(?s).*\\S.*", message = "must not be blank")
+    private String beerName;
+
+    private BeerStyleEnum beerStyle;
+
+    @Positive
+    private Long upc;
+
+    @Positive
+    private BigDecimal price;
+}
@@ -0,0 +1,37 @@
+package com.eigenbaumarkt.restdocsexample.web.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.PositiveOrZero;
+import java.math.BigDecimal;
+
+// filters of the beer search, all optional and combined with "and"
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BeerSearchCriteria {
+
+    public enum NameMatch {
+        // case-sensitive, served by the index on beerName
+        PREFIX,
+        // case-insensitive, needs a scan of the table
+        CONTAINS
+    }
+
+    private String beerName;
+
+    @Builder.Default
+    private NameMatch nameMatch = NameMatch.PREFIX;
+
+    private BeerStyleEnum beerStyle;
+
+    @PositiveOrZero
+    private BigDecimal minPrice;
+
+    @PositiveOrZero
+    private BigDecimal maxPrice;
+}
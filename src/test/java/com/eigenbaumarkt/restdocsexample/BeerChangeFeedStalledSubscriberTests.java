@@ -0,0 +1,104 @@
+package com.eigenbaumarkt.restdocsexample;
+
+import com.eigenbaumarkt.restdocsexample.services.BeerChangeFeed;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// a real server: a client that stops reading only blocks a write on a real socket. With a single dispatcher
+// thread the stalled subscriber would keep every other one from getting events
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"beer.changes.dispatcher-threads=1", "beer.changes.send-timeout=1s"})
+class BeerChangeFeedStalledSubscriberTests {
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    BeerChangeFeed beerChangeFeed;
+
+    @Test
+    void stalledSubscriberIsDroppedAndDelaysNoOneElse() throws Exception {
+        try (Socket stalled = new Socket(); Socket reading = new Socket()) {
+            // a small window, the server's send buffer fills up soon
+            stalled.setReceiveBufferSize(1024);
+            subscribe(stalled);
+            awaitSubscribers(1);
+            // once an event arrived the emitter is initialized, events sent before are written by the request thread
+            beerChangeFeed.updated(UUID.randomUUID(), 1L, Map.of("beerName", "Mönchsambacher First"));
+            readUntil(stalled, "Mönchsambacher First");
+
+            // megabytes the stalled client never reads
+            String name = "x".repeat(64 * 1024);
+            for (int i = 0; i < 200; i++) {
+                beerChangeFeed.updated(UUID.randomUUID(), 1L, Map.of("beerName", name));
+            }
+
+            subscribe(reading);
+            awaitSubscribers(2);
+
+            beerChangeFeed.updated(UUID.randomUUID(), 1L, Map.of("beerName", "Mönchsambacher Marker"));
+
+            reading.setSoTimeout(10_000);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(reading.getInputStream(),
+                    StandardCharsets.UTF_8));
+            String line;
+            boolean received = false;
+
+            while (!received && (line = reader.readLine()) != null) {
+                received = line.contains("Mönchsambacher Marker");
+            }
+
+            assertTrue(received);
+            assertEquals(1, beerChangeFeed.getSubscriberCount());
+        }
+    }
+
+    private void subscribe(Socket socket) throws Exception {
+        socket.connect(new InetSocketAddress("localhost", port), 5_000);
+
+        OutputStream out = socket.getOutputStream();
+        out.write(("GET /api/v1/beer/changes HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "Accept: text/event-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    // byte by byte, so nothing after the text is read
+    private static void readUntil(Socket socket, String text) throws Exception {
+        socket.setSoTimeout(5_000);
+        InputStream in = socket.getInputStream();
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+
+        while (!read.toString(StandardCharsets.UTF_8).contains(text)) {
+            int b = in.read();
+            assertTrue(b >= 0);
+            read.write(b);
+        }
+    }
+
+    private void awaitSubscribers(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+
+        while (beerChangeFeed.getSubscriberCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(count, beerChangeFeed.getSubscriberCount());
+    }
+}
@@ -0,0 +1,87 @@
+package com.eigenbaumarkt.restdocsexample;
+
+import com.eigenbaumarkt.restdocsexample.domain.Beer;
+import com.eigenbaumarkt.restdocsexample.repositories.BeerRepository;
+import com.eigenbaumarkt.restdocsexample.services.BeerService;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerDTO;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerStyleEnum;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// concurrent getBeerById calls for beers that are not cached yet; the long window puts all of them into one batch
+@SpringBootTest(properties = "beer.lookup.batch-window=500ms")
+class BeerLookupCoalescingTests {
+
+    @Autowired
+    BeerService beerService;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void concurrentLookupsShareOneQuery() throws Exception {
+        // saved with the repository, so not cached
+        List<UUID> beerIds = Stream.of(1900024312201L, 1900024312202L, 1900024312203L)
+                .map(upc -> beerRepository.save(beer(upc)).getId())
+                .collect(Collectors.toList());
+
+        // every beer twice
+        List<UUID> lookups = new ArrayList<>(beerIds);
+        lookups.addAll(beerIds);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ExecutorService executor = Executors.newFixedThreadPool(lookups.size());
+        CyclicBarrier barrier = new CyclicBarrier(lookups.size());
+
+        try {
+            List<Future<BeerDTO>> beerDTOs = new ArrayList<>();
+
+            for (UUID beerId : lookups) {
+                beerDTOs.add(executor.submit(() -> {
+                    barrier.await();
+                    return beerService.getBeerById(beerId);
+                }));
+            }
+
+            for (int i = 0; i < lookups.size(); i++) {
+                assertEquals(lookups.get(i), beerDTOs.get(i).get(10, TimeUnit.SECONDS).getId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private static Beer beer(long upc) {
+        return Beer.builder()
+                .beerName("Mönchsambacher Lager")
+                .beerStyle(BeerStyleEnum.LAGER.name())
+                .upc(upc)
+                .price(new BigDecimal("12.95"))
+                .build();
+    }
+}
@@ -0,0 +1,30 @@
+package com.eigenbaumarkt.restdocsexample;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// lazy beans, deferred repositories and Hibernate booting in the background still add up to a working beer API
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("fast-startup")
+class FastStartupTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    void beerApiServesRequests() throws Exception {
+        mockMvc.perform(get("/api/v1/beer")
+                .param("pageSize", "1")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,150 @@
+package com.eigenbaumarkt.restdocsexample;
+
+import com.eigenbaumarkt.restdocsexample.datasource.H2ReplicaStandIn;
+import com.eigenbaumarkt.restdocsexample.datasource.ReadYourWritesInterceptor;
+import com.eigenbaumarkt.restdocsexample.domain.Beer;
+import com.eigenbaumarkt.restdocsexample.repositories.BeerRepository;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerStyleEnum;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.servlet.http.Cookie;
+import java.math.BigDecimal;
+
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// the replica-h2 profile with replication by hand: beers saved to the primary are not on the replica until
+// H2ReplicaStandIn.replicate() runs
+@SpringBootTest(properties = "beer.datasource.replica.stand-in.interval=1h")
+@AutoConfigureMockMvc
+@ActiveProfiles("replica-h2")
+class ReplicaRoutingTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    BeerRepository beerRepository;
+
+    @Autowired
+    H2ReplicaStandIn h2ReplicaStandIn;
+
+    @Test
+    void readsGoToTheReplicaOnceReplicated() throws Exception {
+        Beer beer = beerRepository.save(beer(1900024312101L));
+
+        mockMvc.perform(get("/api/v1/beer/{beerId}", beer.getId()))
+                .andExpect(status().isNotFound());
+
+        h2ReplicaStandIn.replicate();
+
+        mockMvc.perform(get("/api/v1/beer/{beerId}", beer.getId()))
+                .andExpect(status().isOk());
+    }
+
+    // findIdByUpc is a declared query method, it needs a read-only transaction of its own to reach the replica
+    @Test
+    void upcLookupsGoToTheReplica() throws Exception {
+        beerRepository.save(beer(1900024312106L));
+
+        mockMvc.perform(get("/api/v1/beer/upc/{upc}", 1900024312106L))
+                .andExpect(status().isNotFound());
+
+        h2ReplicaStandIn.replicate();
+
+        mockMvc.perform(get("/api/v1/beer/upc/{upc}", 1900024312106L))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void clientsReadTheirOwnWritesFromThePrimary() throws Exception {
+        Beer beer = beerRepository.save(beer(1900024312102L));
+        long now = System.currentTimeMillis();
+
+        // outside of the read-your-writes window
+        mockMvc.perform(get("/api/v1/beer/{beerId}", beer.getId())
+                .cookie(new Cookie(ReadYourWritesInterceptor.LAST_WRITE_COOKIE, Long.toString(now - 60_000))))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/api/v1/beer/{beerId}", beer.getId())
+                .cookie(new Cookie(ReadYourWritesInterceptor.LAST_WRITE_COOKIE, Long.toString(now))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void replicaReadsRightAfterAWriteAreNotCached() throws Exception {
+        Beer beer = beerRepository.save(beer(1900024312104L));
+        h2ReplicaStandIn.replicate();
+
+        // cached
+        mockMvc.perform(get("/api/v1/beer/{beerId}", beer.getId()))
+                .andExpect(jsonPath("$.price", is(12.95)));
+
+        Cookie lastWrite = mockMvc.perform(patch("/api/v1/beer/{beerId}", beer.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"price\":10.95}"))
+                .andExpect(status().isNoContent())
+                .andReturn().getResponse().getCookie(ReadYourWritesInterceptor.LAST_WRITE_COOKIE);
+
+        // the replica does not have the write yet, that state must not go into the cache
+        mockMvc.perform(get("/api/v1/beer/{beerId}", beer.getId()))
+                .andExpect(jsonPath("$.price", is(12.95)));
+
+        mockMvc.perform(get("/api/v1/beer/{beerId}", beer.getId())
+                .cookie(lastWrite))
+                .andExpect(jsonPath("$.price", is(10.95)));
+
+        h2ReplicaStandIn.replicate();
+
+        mockMvc.perform(get("/api/v1/beer/{beerId}", beer.getId()))
+                .andExpect(jsonPath("$.price", is(10.95)));
+    }
+
+    @Test
+    void readsPinnedToThePrimarySkipTheCache() throws Exception {
+        Beer beer = beerRepository.save(beer(1900024312105L));
+        h2ReplicaStandIn.replicate();
+
+        mockMvc.perform(get("/api/v1/beer/{beerId}", beer.getId()))
+                .andExpect(jsonPath("$.price", is(12.95)));
+
+        // written behind the back of the cache
+        beer.setPrice(new BigDecimal("11.95"));
+        beerRepository.save(beer);
+
+        mockMvc.perform(get("/api/v1/beer/{beerId}", beer.getId())
+                .cookie(new Cookie(ReadYourWritesInterceptor.LAST_WRITE_COOKIE, Long.toString(System.currentTimeMillis()))))
+                .andExpect(jsonPath("$.price", is(11.95)));
+    }
+
+    @Test
+    void writesSetTheLastWriteCookie() throws Exception {
+        mockMvc.perform(post("/api/v1/beer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"beerName\":\"Mönchsambacher Weizen\",\"beerStyle\":\"WEIZEN_HELL\","
+                        + "\"upc\":1900024312103,\"price\":9.99}"))
+                .andExpect(status().isCreated())
+                .andExpect(cookie().exists(ReadYourWritesInterceptor.LAST_WRITE_COOKIE))
+                .andExpect(cookie().httpOnly(ReadYourWritesInterceptor.LAST_WRITE_COOKIE, true));
+    }
+
+    private static Beer beer(long upc) {
+        return Beer.builder()
+                .beerName("Mönchsambacher Lager")
+                .beerStyle(BeerStyleEnum.LAGER.name())
+                .upc(upc)
+                .price(new BigDecimal("12.95"))
+                .build();
+    }
+}
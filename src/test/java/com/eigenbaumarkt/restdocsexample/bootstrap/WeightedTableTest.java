@@ -0,0 +1,26 @@
+package com.eigenbaumarkt.restdocsexample.bootstrap;
+
+import com.eigenbaumarkt.restdocsexample.web.model.BeerStyleEnum;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WeightedTableTest {
+
+    @Test
+    void everyConstantIsRepeatedByItsWeight() {
+        assertArrayEquals(new BeerStyleEnum[]{BeerStyleEnum.LAGER, BeerStyleEnum.LAGER, BeerStyleEnum.HELLES},
+                WeightedTable.of(BeerStyleEnum.class, " LAGER : 2, HELLES"));
+    }
+
+    @Test
+    void emptyMeansAllConstantsOnce() {
+        assertArrayEquals(BeerStyleEnum.values(), WeightedTable.of(BeerStyleEnum.class, ""));
+    }
+
+    @Test
+    void unknownConstantsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> WeightedTable.of(BeerStyleEnum.class, "LAGER:1,BOCK:1"));
+    }
+}
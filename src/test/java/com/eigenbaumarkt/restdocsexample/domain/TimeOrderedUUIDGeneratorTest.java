@@ -0,0 +1,74 @@
+package com.eigenbaumarkt.restdocsexample.domain;
+
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeOrderedUUIDGeneratorTest {
+
+    @Test
+    void layoutIsVersion7WithTheTimeInFront() {
+        long before = System.currentTimeMillis();
+        UUID uuid = TimeOrderedUUIDGenerator.timeOrderedUUID();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+
+        long millis = uuid.getMostSignificantBits() >>> 16;
+        assertTrue(millis >= before && millis <= after);
+    }
+
+    // compared as text, which is the unsigned byte order of the binary(16) column
+    @Test
+    void idsOfLaterMillisecondsSortAfterEarlierOnes() throws InterruptedException {
+        List<String> ids = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            ids.add(TimeOrderedUUIDGenerator.timeOrderedUUID().toString());
+            Thread.sleep(2);
+        }
+
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0, ids.get(i - 1) + " before " + ids.get(i));
+        }
+    }
+
+    // 74 random bits, many ids in the same millisecond still differ
+    @Test
+    void idsAreUnique() {
+        Set<UUID> ids = new HashSet<>();
+
+        for (int i = 0; i < 100_000; i++) {
+            ids.add(TimeOrderedUUIDGenerator.timeOrderedUUID());
+        }
+
+        assertEquals(100_000, ids.size());
+    }
+
+    @Test
+    void randomUUIDsWhenSwitchedOff() {
+        StandardServiceRegistry serviceRegistry = new StandardServiceRegistryBuilder()
+                .applySetting(TimeOrderedUUIDGenerator.TIME_ORDERED, "false")
+                .build();
+
+        try {
+            TimeOrderedUUIDGenerator generator = new TimeOrderedUUIDGenerator();
+            generator.configure(null, new Properties(), serviceRegistry);
+
+            assertEquals(4, ((UUID) generator.generate(null, null)).version());
+        } finally {
+            StandardServiceRegistryBuilder.destroy(serviceRegistry);
+        }
+    }
+}
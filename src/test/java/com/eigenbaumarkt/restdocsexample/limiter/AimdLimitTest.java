@@ -0,0 +1,119 @@
+package com.eigenbaumarkt.restdocsexample.limiter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AimdLimitTest {
+
+    static final long FAST = Duration.ofMillis(1).toNanos();
+    static final long SLOW = Duration.ofSeconds(1).toNanos();
+
+    AimdLimit limit = new AimdLimit();
+
+    @BeforeEach
+    void setUp() {
+        limit.setInitialLimit(10);
+        limit.setMinLimit(2);
+        limit.setMaxLimit(12);
+        limit.setLatencyThreshold(Duration.ofMillis(100));
+        limit.setBackoffRatio(0.5);
+    }
+
+    @Test
+    void requestsOverTheLimitAreRejected() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+
+        assertFalse(limit.tryAcquire());
+        assertEquals(10, limit.getInFlight());
+    }
+
+    @Test
+    void fastRequestsIncreaseTheLimitWhileHalfOfItIsInUse() {
+        acquire(5);
+
+        limit.release(FAST, false);
+
+        assertEquals(11, limit.getLimit());
+    }
+
+    @Test
+    void fastRequestsKeepTheLimitWhileLessThanHalfIsInUse() {
+        acquire(4);
+
+        limit.release(FAST, false);
+
+        assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    void increaseStopsAtTheMaxLimit() {
+        acquire(10);
+
+        for (int i = 0; i < 5; i++) {
+            limit.release(FAST, false);
+            acquire(1);
+        }
+
+        assertEquals(12, limit.getLimit());
+    }
+
+    // right after the start as well, the first overload must not be ignored
+    @Test
+    void slowRequestsBackOff() {
+        acquire(2);
+
+        limit.release(SLOW, false);
+
+        assertEquals(5, limit.getLimit());
+    }
+
+    @Test
+    void failedRequestsBackOff() {
+        acquire(2);
+
+        limit.release(FAST, true);
+
+        assertEquals(5, limit.getLimit());
+    }
+
+    @Test
+    void backoffHappensOncePerLatencyThreshold() throws InterruptedException {
+        acquire(3);
+
+        // the requests of one overload come back slow together
+        limit.release(SLOW, false);
+        limit.release(SLOW, false);
+        assertEquals(5, limit.getLimit());
+
+        Thread.sleep(150);
+
+        limit.release(SLOW, false);
+        assertEquals(2, limit.getLimit());
+    }
+
+    @Test
+    void backoffStopsAtTheMinLimit() throws InterruptedException {
+        acquire(3);
+
+        for (int i = 0; i < 3; i++) {
+            limit.release(SLOW, false);
+            Thread.sleep(150);
+        }
+
+        assertEquals(2, limit.getLimit());
+    }
+
+    private void acquire(int requests) {
+        for (int i = 0; i < requests; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.eigenbaumarkt.restdocsexample.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MeteredBeanPostProcessorTest {
+
+    MeterRegistry registry = new SimpleMeterRegistry();
+
+    MeteredBeanPostProcessor postProcessor = new MeteredBeanPostProcessor(Greeter.class, "test.greeter",
+            new StaticListableBeanFactory(Map.of("meterRegistry", registry)).getBeanProvider(MeterRegistry.class));
+
+    @Test
+    void callsAreTimedByMethod() {
+        Greeter greeter = (Greeter) postProcessor.postProcessAfterInitialization(new FriendlyGreeter(), "greeter");
+
+        assertEquals("Prost, Hans", greeter.greet("Hans"));
+        assertEquals("Prost, Grete", greeter.greet("Grete"));
+        greeter.farewell();
+
+        assertEquals(2, registry.get("test.greeter").tag("method", "greet").tag("exception", "none").timer().count());
+        assertEquals(1, registry.get("test.greeter").tag("method", "farewell").tag("exception", "none").timer().count());
+    }
+
+    @Test
+    void failedCallsAreTaggedWithTheException() {
+        Greeter greeter = (Greeter) postProcessor.postProcessAfterInitialization(new FriendlyGreeter(), "greeter");
+
+        assertThrows(IllegalArgumentException.class, () -> greeter.greet(null));
+        assertThrows(IllegalArgumentException.class, () -> greeter.greet(null));
+        greeter.greet("Hans");
+
+        assertEquals(2, registry.get("test.greeter").tag("method", "greet")
+                .tag("exception", "IllegalArgumentException").timer().count());
+        assertEquals(1, registry.get("test.greeter").tag("method", "greet").tag("exception", "none").timer().count());
+    }
+
+    @Test
+    void otherBeansAreNotProxied() {
+        Object bean = new Object();
+
+        assertSame(bean, postProcessor.postProcessAfterInitialization(bean, "other"));
+    }
+
+    @Test
+    void callsWithoutRegistryAreNotTimed() {
+        MeteredBeanPostProcessor withoutRegistry = new MeteredBeanPostProcessor(Greeter.class, "test.greeter",
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        Greeter greeter = (Greeter) withoutRegistry.postProcessAfterInitialization(new FriendlyGreeter(), "greeter");
+
+        assertEquals("Prost, Hans", greeter.greet("Hans"));
+        assertEquals(0, registry.getMeters().size());
+    }
+
+    interface Greeter {
+
+        String greet(String name);
+
+        void farewell();
+    }
+
+    static class FriendlyGreeter implements Greeter {
+
+        @Override
+        public String greet(String name) {
+            if (name == null) {
+                throw new IllegalArgumentException("Nobody to greet");
+            }
+            return "Prost, " + name;
+        }
+
+        @Override
+        public void farewell() {
+        }
+    }
+}
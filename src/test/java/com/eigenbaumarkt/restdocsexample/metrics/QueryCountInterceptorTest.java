@@ -0,0 +1,122 @@
+package com.eigenbaumarkt.restdocsexample.metrics;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// a request as Spring MVC runs it, with the statements Hibernate reports to QueryCountSessionListener
+class QueryCountInterceptorTest {
+
+    MeterRegistry registry = new SimpleMeterRegistry();
+
+    QueryCountInterceptor interceptor = new QueryCountInterceptor(registry, 3);
+
+    QueryCountSessionListener sessionListener = new QueryCountSessionListener();
+
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/beer");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    ListAppender<ILoggingEvent> logged = new ListAppender<>();
+    Logger logger = (Logger) LoggerFactory.getLogger(QueryCountInterceptor.class);
+
+    @BeforeEach
+    void setUp() {
+        logged.start();
+        logger.addAppender(logged);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(logged);
+        QueryCount.unbind();
+    }
+
+    @Test
+    void statementsAndFlushesAreCountedPerHandler() throws Exception {
+        HandlerMethod handler = handler();
+
+        interceptor.preHandle(request, response, handler);
+        QueryCount queryCount = QueryCount.current();
+        assertNotNull(queryCount);
+
+        sessionListener.jdbcExecuteStatementEnd();
+        // one round trip for the whole batch
+        sessionListener.jdbcExecuteBatchEnd();
+        sessionListener.flushEnd(1, 0);
+
+        assertEquals(2, queryCount.getStatements());
+        assertEquals(1, queryCount.getFlushes());
+
+        interceptor.afterCompletion(request, response, handler, null);
+
+        assertNull(QueryCount.current());
+        assertEquals(2, registry.get("beer.request.statements").tag("handler", "BeerHandler.listBeers")
+                .summary().totalAmount());
+        assertEquals(1, registry.get("beer.request.flushes").tag("handler", "BeerHandler.listBeers")
+                .summary().totalAmount());
+        assertTrue(logged.list.isEmpty());
+    }
+
+    @Test
+    void moreStatementsThanTheThresholdAreLogged() throws Exception {
+        HandlerMethod handler = handler();
+
+        interceptor.preHandle(request, response, handler);
+        for (int i = 0; i < 4; i++) {
+            sessionListener.jdbcExecuteStatementEnd();
+        }
+        interceptor.afterCompletion(request, response, handler, null);
+
+        assertEquals(1, logged.list.size());
+        assertEquals(Level.WARN, logged.list.get(0).getLevel());
+        assertEquals("GET /api/v1/beer executed 4 statements (threshold 3)", logged.list.get(0).getFormattedMessage());
+    }
+
+    // the async dispatch continues with the count of the request
+    @Test
+    void countSurvivesTheAsyncDispatch() throws Exception {
+        HandlerMethod handler = handler();
+
+        interceptor.preHandle(request, response, handler);
+        QueryCount queryCount = QueryCount.current();
+        interceptor.afterConcurrentHandlingStarted(request, response, handler);
+        assertNull(QueryCount.current());
+
+        interceptor.preHandle(request, response, handler);
+        assertSame(queryCount, QueryCount.current());
+    }
+
+    @Test
+    void statementsOutsideOfARequestAreNotCounted() {
+        sessionListener.jdbcExecuteStatementEnd();
+        sessionListener.flushEnd(1, 0);
+
+        assertNull(QueryCount.current());
+    }
+
+    private static HandlerMethod handler() throws NoSuchMethodException {
+        return new HandlerMethod(new BeerHandler(), BeerHandler.class.getMethod("listBeers"));
+    }
+
+    static class BeerHandler {
+
+        public void listBeers() {
+        }
+    }
+}
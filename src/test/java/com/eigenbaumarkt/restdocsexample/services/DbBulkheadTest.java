@@ -0,0 +1,120 @@
+package com.eigenbaumarkt.restdocsexample.services;
+
+import com.eigenbaumarkt.restdocsexample.web.controller.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// one permit and a short timeout, so a second task has to wait for the first one
+class DbBulkheadTest {
+
+    DbBulkhead dbBulkhead = new DbBulkhead(1, 0, 1, Duration.ofMillis(200));
+
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        dbBulkhead.destroy();
+    }
+
+    @Test
+    void submitRunsTheTask() throws Exception {
+        assertEquals("done", dbBulkhead.submit(() -> "done").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void callFailsWithoutCapacity() throws Exception {
+        CompletableFuture<String> running = dbBulkhead.submit(this::blockUntilReleased);
+        // holds the permit
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(ServiceUnavailableException.class, () -> dbBulkhead.call(() -> "too late"));
+
+        release.countDown();
+        assertEquals("released", running.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void queuedTaskIsDroppedWhenItsTimeoutFires() throws Exception {
+        CompletableFuture<String> running = dbBulkhead.submit(this::blockUntilReleased);
+
+        AtomicBoolean ran = new AtomicBoolean();
+        CompletableFuture<Boolean> queued = dbBulkhead.submit(() -> ran.getAndSet(true));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof ServiceUnavailableException);
+
+        // the permit is free again, the dropped task must not take it now
+        release.countDown();
+        assertEquals("released", running.get(5, TimeUnit.SECONDS));
+        assertEquals("next", dbBulkhead.submit(() -> "next").get(5, TimeUnit.SECONDS));
+
+        assertFalse(ran.get());
+    }
+
+    @Test
+    void startedTaskIsNotReportedAsTimedOut() throws Exception {
+        CompletableFuture<String> running = dbBulkhead.submit(this::blockUntilReleased);
+
+        // well after the timeout
+        Thread.sleep(500);
+        assertFalse(running.isDone());
+
+        release.countDown();
+        assertEquals("released", running.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submitFailsWhenTheQueueIsFull() throws Exception {
+        dbBulkhead.submit(this::blockUntilReleased);
+        // waits for the permit, with the first task on the only thread the second one stays in the queue
+        dbBulkhead.submit(() -> "queued");
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> dbBulkhead.submit(() -> "rejected").get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof ServiceUnavailableException);
+    }
+
+    // two permits, one of them for the primary
+    @Test
+    void writesAreLimitedToThePrimaryPermits() throws Exception {
+        DbBulkhead withReplica = new DbBulkhead(2, 1, 1, Duration.ofMillis(200));
+
+        try {
+            CompletableFuture<String> running = withReplica.submitWrite(this::blockUntilReleased);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            assertThrows(ServiceUnavailableException.class, () -> withReplica.callWrite(() -> "too late"));
+            assertEquals("read", withReplica.call(() -> "read"));
+
+            release.countDown();
+            assertEquals("released", running.get(5, TimeUnit.SECONDS));
+            assertEquals("written", withReplica.callWrite(() -> "written"));
+        } finally {
+            withReplica.destroy();
+        }
+    }
+
+    private String blockUntilReleased() {
+        started.countDown();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "released";
+    }
+}
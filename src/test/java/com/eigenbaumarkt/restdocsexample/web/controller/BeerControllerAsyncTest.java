@@ -0,0 +1,131 @@
+package com.eigenbaumarkt.restdocsexample.web.controller;
+
+import com.eigenbaumarkt.restdocsexample.config.BinaryFormatsConfig;
+import com.eigenbaumarkt.restdocsexample.domain.Beer;
+import com.eigenbaumarkt.restdocsexample.limiter.LimiterConfig;
+import com.eigenbaumarkt.restdocsexample.repositories.BeerInventoryRepository;
+import com.eigenbaumarkt.restdocsexample.repositories.BeerRepository;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerDTO;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerStyleEnum;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.hamcrest.Matchers.is;
+
+// beer.async.enabled: the handlers run on the threads of the DbBulkhead, with a single permit here
+@WebMvcTest(value = BeerController.class, properties = {"beer.async.enabled=true",
+        "beer.db-bulkhead.max-concurrent-calls=1", "beer.db-bulkhead.timeout=500ms"})
+@ComponentScan(basePackages = {"com.eigenbaumarkt.restdocsexample.web.mappers",
+        "com.eigenbaumarkt.restdocsexample.services"})
+@Import({BinaryFormatsConfig.class, LimiterConfig.class})
+class BeerControllerAsyncTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @MockBean
+    BeerRepository beerRepository;
+
+    @MockBean
+    BeerInventoryRepository beerInventoryRepository;
+
+    @Test
+    void getBeerById() throws Exception {
+        Beer beer = getValidBeer();
+        given(beerRepository.findById(beer.getId())).willReturn(Optional.of(beer));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/v1/beer/{beerId}", beer.getId().toString())
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.beerName", is(beer.getBeerName())));
+    }
+
+    // the second POST waits behind the first one and gets 503 when its timeout fires; it is never written,
+    // not even after the first one gave the permit back
+    @Test
+    void saveNewBeerTimedOutInTheQueueIsNotSaved() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        given(beerRepository.save(any())).willAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return getValidBeer();
+        });
+
+        String beerDTOJson = objectMapper.writeValueAsString(getValidBeerDTO());
+
+        MvcResult first = mockMvc.perform(post("/api/v1/beer/")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(beerDTOJson))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult second = mockMvc.perform(post("/api/v1/beer/")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(beerDTOJson))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(second))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+
+        release.countDown();
+
+        mockMvc.perform(asyncDispatch(first))
+                .andExpect(status().isCreated());
+
+        verify(beerRepository, times(1)).save(any());
+    }
+
+    Beer getValidBeer() {
+        return Beer.builder()
+                .id(UUID.randomUUID())
+                .version(1L)
+                .beerName("Mönchsambacher Lager")
+                .beerStyle(BeerStyleEnum.LAGER.name())
+                .price(new BigDecimal("12.95"))
+                .upc(1900024312001L)
+                .build();
+    }
+
+    BeerDTO getValidBeerDTO() {
+        return BeerDTO.builder()
+                .beerName("Mönchsambacher Weizen")
+                .beerStyle(BeerStyleEnum.WEIZEN_HELL)
+                .price(new BigDecimal("9.99"))
+                .upc(123123123123L)
+                .build();
+    }
+}
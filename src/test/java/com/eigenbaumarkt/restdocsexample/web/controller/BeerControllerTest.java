@@ -1,40 +1,95 @@
 package com.eigenbaumarkt.restdocsexample.web.controller;
 
 
+import com.eigenbaumarkt.restdocsexample.config.BinaryFormatsConfig;
 import com.eigenbaumarkt.restdocsexample.domain.Beer;
+import com.eigenbaumarkt.restdocsexample.limiter.AimdLimit;
+import com.eigenbaumarkt.restdocsexample.limiter.LimiterConfig;
+import com.eigenbaumarkt.restdocsexample.repositories.BeerInventoryRepository;
 import com.eigenbaumarkt.restdocsexample.repositories.BeerRepository;
+import com.eigenbaumarkt.restdocsexample.repositories.BeerRevision;
+import com.eigenbaumarkt.restdocsexample.services.BeerDTOCache;
+import com.eigenbaumarkt.restdocsexample.services.BeerInventoryService;
+import com.eigenbaumarkt.restdocsexample.services.BeerNameIndex;
+import com.eigenbaumarkt.restdocsexample.services.BeerUpcIndex;
 import com.eigenbaumarkt.restdocsexample.web.model.BeerDTO;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerInventoryAdjustmentDTO;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerPageCursor;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerPatchDTO;
 import com.eigenbaumarkt.restdocsexample.web.model.BeerStyleEnum;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.autoconfigure.restdocs.AutoConfigureRestDocs;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.restdocs.RestDocumentationExtension;
 import org.springframework.restdocs.constraints.ConstraintDescriptions;
+import org.springframework.restdocs.operation.preprocess.ContentModifyingOperationPreprocessor;
+import org.springframework.restdocs.operation.preprocess.OperationPreprocessor;
 import org.springframework.restdocs.payload.FieldDescriptor;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
 import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 // very important:
 // import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.*;
 import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
+import static org.springframework.restdocs.headers.HeaderDocumentation.*;
+import static org.springframework.restdocs.operation.preprocess.Preprocessors.preprocessRequest;
+import static org.springframework.restdocs.operation.preprocess.Preprocessors.preprocessResponse;
 import static org.springframework.restdocs.payload.PayloadDocumentation.*;
 import static org.springframework.restdocs.request.RequestDocumentation.*;
 import static org.springframework.restdocs.snippet.Attributes.key;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 
 // Autoconfigure REST docs, with Annotation; similar to autoconfiguring the MockMvc-Object:
 @AutoConfigureRestDocs(uriScheme = "https", uriHost = "dev.eigenbaumarkt.com", uriPort = 80)
@@ -43,7 +98,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 // extend the WebMvcTest
 @ExtendWith(RestDocumentationExtension.class)
 // package to look for the mappers:
-@ComponentScan(basePackages = "com.eigenbaumarkt.restdocsexample.web.mappers")
+@ComponentScan(basePackages = {"com.eigenbaumarkt.restdocsexample.web.mappers",
+        "com.eigenbaumarkt.restdocsexample.services"})
+@Import({BinaryFormatsConfig.class, LimiterConfig.class})
 class BeerControllerTest {
 
     // wire in a MockMvc-Object autoconfigured by Spring boot
@@ -54,11 +111,36 @@ class BeerControllerTest {
     @Autowired
     ObjectMapper objectMapper;
 
+    @Autowired
+    MappingJackson2CborHttpMessageConverter cborHttpMessageConverter;
+
+    @Autowired
+    MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter;
+
     // only mocking a repository object, that means use a "crash test dummy" instead of using a real repository
     // including bringing up the whole database layer from the Spring framework and a database
     @MockBean
     BeerRepository beerRepository;
 
+    @MockBean
+    BeerInventoryRepository beerInventoryRepository;
+
+    @Autowired
+    BeerNameIndex beerNameIndex;
+
+    @Autowired
+    BeerUpcIndex beerUpcIndex;
+
+    @Autowired
+    BeerDTOCache beerDTOCache;
+
+    @Autowired
+    BeerInventoryService beerInventoryService;
+
+    @Autowired
+    @Qualifier("readLimit")
+    AimdLimit readLimit;
+
     @Test
     void getBeerById() throws Exception {
         given(beerRepository.findById(any())).willReturn(Optional.of(Beer.builder().build()));
@@ -93,8 +175,401 @@ class BeerControllerTest {
                         )));
     }
 
+    @Test
+    void getBeerByIdIsCached() throws Exception {
+        Beer beer = getValidBeer();
+        given(beerRepository.findById(beer.getId())).willReturn(Optional.of(beer));
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/v1/beer/{beerId}", beer.getId().toString())
+                    .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.beerName", is(beer.getBeerName())));
+        }
+
+        verify(beerRepository, times(1)).findById(beer.getId());
+    }
+
+    @Test
+    void getBeerByIdCbor() throws Exception {
+        Beer beer = getValidBeer();
+        given(beerRepository.findById(beer.getId())).willReturn(Optional.of(beer));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/beer/{beerId}", beer.getId().toString())
+                .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andDo(document("v1/beer-get-cbor", preprocessResponse(binaryBodyAsSize()),
+                        requestHeaders(
+                                headerWithName(HttpHeaders.ACCEPT).description("application/cbor or application/x-jackson-smile instead of JSON")
+                        ),
+                        responseHeaders(
+                                headerWithName(HttpHeaders.CONTENT_TYPE).description("Format of the body, the same fields as in JSON")
+                        )))
+                .andReturn();
+
+        BeerDTO beerDTO = cborHttpMessageConverter.getObjectMapper()
+                .readValue(result.getResponse().getContentAsByteArray(), BeerDTO.class);
+
+        assertEquals(beer.getId(), beerDTO.getId());
+        assertEquals(beer.getBeerName(), beerDTO.getBeerName());
+        assertEquals(beer.getPrice(), beerDTO.getPrice());
+        assertEquals(beer.getCreatedDate().toInstant(), beerDTO.getCreatedDate().toInstant());
+    }
+
+    @Test
+    void getBeerByIdNotFound() throws Exception {
+        mockMvc.perform(get("/api/v1/beer/{beerId}", UUID.randomUUID().toString())
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getBeerByIdNotModified() throws Exception {
+        UUID beerId = UUID.randomUUID();
+        given(beerRepository.findRevisionById(beerId)).willReturn(Optional.of(new BeerRevision(5L, null)));
+
+        mockMvc.perform(get("/api/v1/beer/{beerId}", beerId.toString())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"5\"")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"5\""))
+                .andDo(document("v1/beer-get-not-modified",
+                        requestHeaders(
+                                headerWithName(HttpHeaders.IF_NONE_MATCH).description("ETag of the beer the client already has")
+                        )));
+
+        verify(beerRepository, never()).findById(any());
+    }
+
+    @Test
+    void getBeerByIdModified() throws Exception {
+        Beer beer = getValidBeer();
+        given(beerRepository.findRevisionById(beer.getId())).willReturn(Optional.of(new BeerRevision(1L, null)));
+        given(beerRepository.findById(beer.getId())).willReturn(Optional.of(beer));
+
+        mockMvc.perform(get("/api/v1/beer/{beerId}", beer.getId().toString())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+    }
+
+    // inventory adjustments keep the version, the stock in the ETag still tells the client its copy is old
+    @Test
+    void getBeerByIdModifiedByAnInventoryAdjustment() throws Exception {
+        Beer beer = getValidBeer();
+        beer.setQuantityOnHand(14);
+        given(beerRepository.findRevisionById(beer.getId())).willReturn(Optional.of(new BeerRevision(1L, 19)));
+
+        mockMvc.perform(get("/api/v1/beer/{beerId}", beer.getId().toString())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1.19\"")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1.19\""));
+
+        given(beerRepository.findRevisionById(beer.getId())).willReturn(Optional.of(new BeerRevision(1L, 14)));
+        given(beerRepository.findById(beer.getId())).willReturn(Optional.of(beer));
+
+        mockMvc.perform(get("/api/v1/beer/{beerId}", beer.getId().toString())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1.19\"")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1.14\""))
+                .andExpect(jsonPath("$.quantityOnHand", is(14)));
+    }
+
+    @Test
+    void getBeerByIdOverConcurrencyLimit() throws Exception {
+        // as if the limit was taken by slow requests still in flight
+        int inFlight = 0;
+        while (readLimit.tryAcquire()) {
+            inFlight++;
+        }
+
+        try {
+            mockMvc.perform(get("/api/v1/beer/{beerId}", UUID.randomUUID().toString()))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                    .andDo(document("v1/beer-get-over-limit",
+                            responseHeaders(
+                                    headerWithName(HttpHeaders.RETRY_AFTER).description("Seconds to wait before trying again")
+                            )));
+        } finally {
+            for (int i = 0; i < inFlight; i++) {
+                readLimit.release(0, false);
+            }
+        }
+
+        verify(beerRepository, never()).findById(any());
+    }
+
+    @Test
+    void getBeerByUpc() throws Exception {
+        Beer beer = getValidBeer();
+        beer.setUpc(1900024399001L);
+        beerUpcIndex.put(beer.getUpc(), beer.getId());
+        given(beerRepository.findById(beer.getId())).willReturn(Optional.of(beer));
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/v1/beer/upc/{upc}", beer.getUpc())
+                    .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                    .andExpect(jsonPath("$.id", is(beer.getId().toString())))
+                    .andDo(document("v1/beer-get-by-upc",
+                            pathParameters(
+                                    parameterWithName("upc").description("UPC of the beer, as read by a barcode scanner")
+                            )));
+        }
+
+        // the first request loads the beer by its id, the others are answered from memory
+        verify(beerRepository, times(1)).findById(beer.getId());
+        verify(beerRepository, never()).findIdByUpc(any());
+    }
+
+    @Test
+    void getBeerByUpcNotIndexed() throws Exception {
+        Beer beer = getValidBeer();
+        beer.setUpc(1900024399002L);
+        given(beerRepository.findIdByUpc(beer.getUpc())).willReturn(Optional.of(beer.getId()));
+        given(beerRepository.findById(beer.getId())).willReturn(Optional.of(beer));
+
+        mockMvc.perform(get("/api/v1/beer/upc/{upc}", beer.getUpc())
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(beer.getId().toString())));
+
+        assertEquals(beer.getId(), beerUpcIndex.get(beer.getUpc()));
+    }
+
+    // a write between reading the beer and caching it must not leave the old state in the cache
+    @Test
+    void getBeerByUpcNotIndexedWrittenMeanwhile() throws Exception {
+        Beer beer = getValidBeer();
+        beer.setUpc(1900024399005L);
+        given(beerRepository.findIdByUpc(beer.getUpc())).willReturn(Optional.of(beer.getId()));
+        given(beerRepository.findById(beer.getId())).willAnswer(invocation -> {
+            beerDTOCache.evict(beer.getId());
+            return Optional.of(beer);
+        });
+
+        mockMvc.perform(get("/api/v1/beer/upc/{upc}", beer.getUpc())
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        assertNull(beerDTOCache.getIfPresent(beer.getId()));
+    }
+
+    @Test
+    void getBeerByUpcAfterTheBeerGotAnotherUpc() throws Exception {
+        Beer beer = getValidBeer();
+        beer.setUpc(1900024399004L);
+        beerUpcIndex.put(1900024399003L, beer.getId());
+        given(beerRepository.findById(beer.getId())).willReturn(Optional.of(beer));
+
+        mockMvc.perform(get("/api/v1/beer/upc/{upc}", 1900024399003L)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+
+        assertNull(beerUpcIndex.get(1900024399003L));
+    }
+
+    @Test
+    void listBeers() throws Exception {
+        given(beerRepository.count()).willReturn(3L);
+        given(beerRepository.findAll(any(Pageable.class))).willReturn(new PageImpl<>(List.of(getValidBeer(), getValidBeer()),
+                PageRequest.of(0, 2), 3L));
+
+        mockMvc.perform(get("/api/v1/beer")
+                .param("pageNumber", "0")
+                .param("pageSize", "2")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements", is(3)))
+                .andExpect(jsonPath("$.nextCursor", notNullValue()))
+                .andDo(document("v1/beer-list",
+                        requestParameters(
+                                parameterWithName("pageNumber").description("Zero based page number, ignored when a cursor is given."),
+                                parameterWithName("pageSize").description("Number of beers per page, 25 by default and at most 1000.")
+                        ),
+                        relaxedResponseFields(
+                                fieldWithPath("content").description("Beers of the page, ordered by creation date"),
+                                fieldWithPath("totalElements").description("Number of beers, only a lower bound if withCount is false"),
+                                fieldWithPath("last").description("True if there is no next page"),
+                                fieldWithPath("nextCursor").description("Cursor of the next page, null on the last page")
+                        )));
+    }
+
+    @Test
+    void listBeersAfterCursor() throws Exception {
+        given(beerRepository.findAllAfter(any(), any(), any())).willReturn(new SliceImpl<>(List.of(getValidBeer()),
+                PageRequest.of(0, 2), false));
+
+        mockMvc.perform(get("/api/v1/beer")
+                .param("cursor", new BeerPageCursor(new Timestamp(0L), UUID.randomUUID()).encode())
+                .param("pageSize", "2")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.last", is(true)))
+                .andExpect(jsonPath("$.nextCursor", nullValue()))
+                .andDo(document("v1/beer-list-cursor",
+                        requestParameters(
+                                parameterWithName("cursor").description("nextCursor of the previous page, seeks instead of skipping rows."),
+                                parameterWithName("pageSize").description("Number of beers per page.")
+                        )));
+    }
+
+    @Test
+    void listBeersWithoutCount() throws Exception {
+        given(beerRepository.findAllBy(any())).willReturn(new SliceImpl<>(List.of(getValidBeer(), getValidBeer()),
+                PageRequest.of(0, 2), true));
+
+        mockMvc.perform(get("/api/v1/beer")
+                .param("pageSize", "2")
+                .param("withCount", "false")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.last", is(false)));
+
+        verify(beerRepository, never()).count();
+    }
+
+    @Test
+    void listBeersWithInvalidCursor() throws Exception {
+        mockMvc.perform(get("/api/v1/beer")
+                .param("cursor", "not-a-cursor")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void listBeersCbor() throws Exception {
+        given(beerRepository.count()).willReturn(3L);
+        given(beerRepository.findAll(any(Pageable.class))).willReturn(new PageImpl<>(List.of(getValidBeer(), getValidBeer()),
+                PageRequest.of(0, 2), 3L));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/beer")
+                .param("pageSize", "2")
+                .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        JsonNode page = cborHttpMessageConverter.getObjectMapper().readTree(result.getResponse().getContentAsByteArray());
+
+        assertEquals(2, page.get("content").size());
+        assertEquals(3, page.get("totalElements").asInt());
+        assertTrue(page.get("nextCursor").isTextual());
+    }
+
+    @Test
+    void getBeersByIds() throws Exception {
+        Beer first = getValidBeer();
+        Beer second = getValidBeer();
+        second.setBeerName("Mönchsambacher Weizen");
+        UUID unknown = UUID.randomUUID();
+        // in any order, like the database returns them
+        given(beerRepository.findAllById(any())).willReturn(List.of(second, first));
+
+        mockMvc.perform(get("/api/v1/beer")
+                .param("ids", first.getId() + "," + unknown + "," + second.getId() + "," + first.getId())
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(2)))
+                .andExpect(jsonPath("$[0].id", is(first.getId().toString())))
+                .andExpect(jsonPath("$[1].id", is(second.getId().toString())))
+                .andDo(document("v1/beer-multi-get",
+                        requestParameters(
+                                parameterWithName("ids").description("Comma-separated ids of the beers, at most " + BeerController.MAX_IDS)
+                        )));
+
+        verify(beerRepository, times(1)).findAllById(any());
+        verify(beerRepository, never()).findById(any());
+    }
+
+    @Test
+    void getBeersByIdsTooMany() throws Exception {
+        String ids = Stream.generate(() -> UUID.randomUUID().toString())
+                .limit(BeerController.MAX_IDS + 1)
+                .collect(Collectors.joining(","));
+
+        mockMvc.perform(get("/api/v1/beer")
+                .param("ids", ids)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void searchBeers() throws Exception {
+        given(beerRepository.findAll(any(Specification.class), any(Pageable.class)))
+                .willReturn(new PageImpl<>(List.of(getValidBeer()), PageRequest.of(0, 25), 1L));
+
+        mockMvc.perform(get("/api/v1/beer/search")
+                .param("beerName", "Mönchs")
+                .param("nameMatch", "PREFIX")
+                .param("beerStyle", "LAGER")
+                .param("minPrice", "5")
+                .param("maxPrice", "15")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements", is(1)))
+                .andDo(document("v1/beer-search",
+                        requestParameters(
+                                parameterWithName("beerName").optional().description("Start of the beer name (case-sensitive), or a part of it with nameMatch CONTAINS"),
+                                parameterWithName("nameMatch").optional().description("PREFIX (default, uses the name index) or CONTAINS (case-insensitive, scans)"),
+                                parameterWithName("beerStyle").optional().description("Style of the beer"),
+                                parameterWithName("minPrice").optional().description("Lowest price, inclusive"),
+                                parameterWithName("maxPrice").optional().description("Highest price, inclusive"),
+                                parameterWithName("pageNumber").optional().description("Zero based page number"),
+                                parameterWithName("pageSize").optional().description("Number of beers per page, 25 by default and at most 1000.")
+                        ),
+                        relaxedResponseFields(
+                                fieldWithPath("content").description("Matching beers, ordered by name"),
+                                fieldWithPath("totalElements").description("Number of matching beers")
+                        )));
+    }
+
+    @Test
+    void searchBeersWithNegativePrice() throws Exception {
+        mockMvc.perform(get("/api/v1/beer/search")
+                .param("minPrice", "-1")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verify(beerRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+
+    @Test
+    void autocompleteBeerNames() throws Exception {
+        beerNameIndex.put(UUID.randomUUID(), "Zwickelbier Spezial");
+        beerNameIndex.put(UUID.randomUUID(), "Zwickelbier Hell");
+        beerNameIndex.put(UUID.randomUUID(), "Spezialbier Dunkel");
+
+        mockMvc.perform(get("/api/v1/beer/search/autocomplete")
+                .param("q", "zwickel SPEZ")
+                .param("limit", "10")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(1)))
+                .andExpect(jsonPath("$[0].beerName", is("Zwickelbier Spezial")))
+                .andDo(document("v1/beer-autocomplete",
+                        requestParameters(
+                                parameterWithName("q").description("Beginnings of words of the beer name, in any case"),
+                                parameterWithName("limit").optional().description("Maximum number of suggestions, 10 by default and at most 100")
+                        ),
+                        responseFields(
+                                fieldWithPath("[].id").description("Id of the beer"),
+                                fieldWithPath("[].beerName").description("Name of the beer")
+                        )));
+
+        verify(beerRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+
     @Test
     void saveNewBeer() throws Exception {
+        given(beerRepository.save(any())).willReturn(getValidBeer());
+
         BeerDTO BeerDTO = getValidBeerDTO();
         String BeerDTOJson = objectMapper.writeValueAsString(BeerDTO);
 
@@ -118,6 +593,24 @@ class BeerControllerTest {
                         )));
     }
 
+    @Test
+    void saveNewBeerSmile() throws Exception {
+        given(beerRepository.save(any())).willReturn(getValidBeer());
+
+        byte[] beerDTOSmile = smileHttpMessageConverter.getObjectMapper().writeValueAsBytes(getValidBeerDTO());
+
+        mockMvc.perform(post("/api/v1/beer/")
+                .contentType(BinaryFormatsConfig.APPLICATION_SMILE)
+                .content(beerDTOSmile))
+                .andExpect(status().isCreated())
+                .andDo(document("v1/beer-post-smile", preprocessRequest(binaryBodyAsSize()),
+                        requestHeaders(
+                                headerWithName(HttpHeaders.CONTENT_TYPE).description("application/x-jackson-smile or application/cbor instead of JSON")
+                        )));
+
+        verify(beerRepository).save(any());
+    }
+
     @Test
     void updateBeerById() throws Exception {
         BeerDTO BeerDTO = getValidBeerDTO();
@@ -129,6 +622,411 @@ class BeerControllerTest {
                 .andExpect(status().isNoContent());
     }
 
+    @Test
+    void adjustInventory() throws Exception {
+        UUID beerId = UUID.randomUUID();
+        given(beerRepository.findVersionById(beerId)).willReturn(Optional.of(1L));
+        given(beerInventoryRepository.addToQuantitiesOnHand(any())).willReturn(new int[]{1});
+
+        ConstrainedFields fields = new ConstrainedFields(BeerInventoryAdjustmentDTO.class);
+
+        mockMvc.perform(post("/api/v1/beer/{beerId}/inventory/adjust", beerId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"delta\": -2}"))
+                .andExpect(status().isAccepted())
+                .andDo(document("v1/beer-inventory-adjust",
+                        pathParameters(
+                                parameterWithName("beerId").description("UUID of the beer")
+                        ),
+                        requestFields(
+                                fields.withPath("delta").description("Change of the quantity on hand, negative for a withdrawal"),
+                                fields.withPath("consistency").optional().type(String.class)
+                                        .description("EVENTUAL (default, buffered) or STRONG (written right away)")
+                        )));
+
+        verify(beerInventoryRepository, never()).adjustQuantityOnHand(any(), any(Long.class));
+
+        // written with the next flush, by the scheduler or right here
+        beerInventoryService.flush();
+
+        verify(beerInventoryRepository).addToQuantitiesOnHand(Map.of(beerId, -2L));
+    }
+
+    @Test
+    void adjustInventoryStrong() throws Exception {
+        UUID beerId = UUID.randomUUID();
+        given(beerInventoryRepository.adjustQuantityOnHand(beerId, -3L)).willReturn(17);
+
+        mockMvc.perform(post("/api/v1/beer/{beerId}/inventory/adjust", beerId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(BeerInventoryAdjustmentDTO.builder()
+                        .delta(-3)
+                        .consistency(BeerInventoryAdjustmentDTO.Consistency.STRONG)
+                        .build())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantityOnHand", is(17)))
+                .andDo(document("v1/beer-inventory-adjust-strong",
+                        responseFields(
+                                fieldWithPath("beerId").description("UUID of the beer"),
+                                fieldWithPath("quantityOnHand").description("Quantity on hand after the adjustment")
+                        )));
+    }
+
+    @Test
+    void adjustInventoryNotEnoughStock() throws Exception {
+        UUID beerId = UUID.randomUUID();
+        given(beerRepository.findVersionById(beerId)).willReturn(Optional.of(1L));
+        given(beerInventoryRepository.adjustQuantityOnHand(beerId, -3L)).willReturn(null);
+
+        mockMvc.perform(post("/api/v1/beer/{beerId}/inventory/adjust", beerId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"delta\": -3, \"consistency\": \"STRONG\"}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void saveNewBeers() throws Exception {
+        BeerDTO invalidBeerDTO = getValidBeerDTO();
+        invalidBeerDTO.setBeerName(null);
+
+        mockMvc.perform(post("/api/v1/beer/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(getValidBeerDTO(), invalidBeerDTO))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status", is("CREATED")))
+                .andExpect(jsonPath("$[1].status", is("INVALID")))
+                .andExpect(jsonPath("$[1].errors[0]", is("beerName must not be blank")))
+                .andDo(document("v1/beer-batch-post",
+                        responseFields(
+                                fieldWithPath("[].index").description("Position of the beer in the request"),
+                                fieldWithPath("[].id").description("Id of the created beer").optional().type(UUID.class),
+                                fieldWithPath("[].version").description("Version number of the created beer").optional().type(Long.class),
+                                fieldWithPath("[].status").description("CREATED, INVALID or CONFLICT (upc already exists)"),
+                                fieldWithPath("[].errors").description("Why the beer was not created").optional().type(List.class)
+                        )));
+    }
+
+    @Test
+    void saveNewBeersTooMany() throws Exception {
+        String beerDTOsJson = Stream.generate(() -> "{}").limit(10_001).collect(Collectors.joining(",", "[", "]"));
+
+        mockMvc.perform(post("/api/v1/beer/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(beerDTOsJson))
+                .andExpect(status().isPayloadTooLarge());
+
+        verify(beerRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void updateBeers() throws Exception {
+        Beer beer = getValidBeer();
+        UUID unknownId = UUID.randomUUID();
+        given(beerRepository.findAllById(any())).willReturn(List.of(beer));
+
+        Map<UUID, BeerDTO> beerDTOs = new LinkedHashMap<>();
+        beerDTOs.put(beer.getId(), getValidBeerDTO());
+        beerDTOs.put(unknownId, getValidBeerDTO());
+
+        mockMvc.perform(put("/api/v1/beer/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(beerDTOs)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status", is("UPDATED")))
+                .andExpect(jsonPath("$[0].id", is(beer.getId().toString())))
+                .andExpect(jsonPath("$[1].status", is("NOT_FOUND")))
+                .andDo(document("v1/beer-batch-put"));
+    }
+
+    @Test
+    void exportBeers() throws Exception {
+        given(beerRepository.streamAll()).willReturn(Stream.of(getValidBeer(), getValidBeer()));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/v1/beer/export")
+                .accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(containsString("}\n{")))
+                .andExpect(content().string(endsWith("}\n")))
+                .andDo(document("v1/beer-export"));
+
+        verify(beerRepository, times(2)).detach(any());
+    }
+
+    @Test
+    void exportBeersGzipped() throws Exception {
+        given(beerRepository.streamAll()).willReturn(Stream.of(getValidBeer()));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/v1/beer/export")
+                .header(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip;q=0.5")
+                .accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+    }
+
+    @Test
+    void exportBeersGzipRefused() throws Exception {
+        given(beerRepository.streamAll()).willReturn(Stream.of(getValidBeer()));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/v1/beer/export")
+                .header(HttpHeaders.ACCEPT_ENCODING, "identity, gzip;q=0")
+                .accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().string(endsWith("}\n")));
+    }
+
+    Beer getValidBeer() {
+        return Beer.builder()
+                .id(UUID.randomUUID())
+                .version(1L)
+                .createdDate(new Timestamp(System.currentTimeMillis()))
+                .beerName("Mönchsambacher Lager")
+                .beerStyle(BeerStyleEnum.LAGER.name())
+                .price(new BigDecimal("12.95"))
+                .upc(1900024312001L)
+                .build();
+    }
+
+    @Test
+    void streamChanges() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(get("/api/v1/beer/changes")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andDo(document("v1/beer-changes",
+                        requestHeaders(
+                                headerWithName("Last-Event-ID").optional().description("Id of the last event received, the events after it are sent first")
+                        )))
+                .andReturn();
+
+        UUID beerId = UUID.randomUUID();
+        given(beerRepository.updateAttributes(eq(beerId), eq(3L), any())).willReturn(1);
+
+        mockMvc.perform(patch("/api/v1/beer/{beerId}", beerId.toString())
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"price\": 10.95}"))
+                .andExpect(status().isNoContent());
+
+        String events = awaitEvent(mvcResult, "event:updated");
+
+        assertTrue(events.contains("\"beerId\":\"" + beerId + "\""));
+        assertTrue(events.contains("\"version\":4"));
+        assertTrue(events.contains("\"changes\":{\"price\":10.95}"));
+    }
+
+    // the version written by an unconditional PATCH is not known, and not read afterwards
+    @Test
+    void streamChangesOfAnUnconditionalPatch() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(get("/api/v1/beer/changes")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        UUID beerId = UUID.randomUUID();
+        given(beerRepository.updateAttributes(eq(beerId), eq(null), any())).willReturn(1);
+
+        mockMvc.perform(patch("/api/v1/beer/{beerId}", beerId.toString())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"price\": 10.95}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+
+        String events = awaitEvent(mvcResult, "event:updated");
+
+        assertTrue(events.contains("\"beerId\":\"" + beerId + "\""));
+        assertFalse(events.matches("(?s).*\"version\":\\d.*"), events);
+        verify(beerRepository, never()).findVersionById(any());
+    }
+
+    @Test
+    void streamChangesAfterLastEventIdOfAnEarlierStart() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(get("/api/v1/beer/changes")
+                .header("Last-Event-ID", "1602844800000-42")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        awaitEvent(mvcResult, "event:reset");
+    }
+
+    @Test
+    void updateBeerByIdIfMatch() throws Exception {
+        Beer beer = getValidBeer();
+        Beer updatedBeer = getValidBeer();
+        updatedBeer.setId(beer.getId());
+        updatedBeer.setVersion(2L);
+        given(beerRepository.findById(beer.getId())).willReturn(Optional.of(beer));
+        given(beerRepository.save(any())).willReturn(updatedBeer);
+
+        mockMvc.perform(put("/api/v1/beer/{beerId}", beer.getId().toString())
+                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(getValidBeerDTO())))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+                .andDo(document("v1/beer-put-if-match",
+                        requestHeaders(
+                                headerWithName(HttpHeaders.IF_MATCH).description("ETag of the beer the update is based on")
+                        ),
+                        responseHeaders(
+                                headerWithName(HttpHeaders.ETAG).description("ETag of the updated beer")
+                        )));
+    }
+
+    @Test
+    void updateBeerByIdPreconditionFailed() throws Exception {
+        Beer beer = getValidBeer();
+        beer.setVersion(2L);
+        given(beerRepository.findById(beer.getId())).willReturn(Optional.of(beer));
+
+        mockMvc.perform(put("/api/v1/beer/{beerId}", beer.getId().toString())
+                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(getValidBeerDTO())))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(beerRepository, never()).save(any());
+    }
+
+    @Test
+    void updateBeerByIdIfMatchNotFound() throws Exception {
+        UUID beerId = UUID.randomUUID();
+        given(beerRepository.findById(beerId)).willReturn(Optional.empty());
+
+        mockMvc.perform(put("/api/v1/beer/{beerId}", beerId.toString())
+                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(getValidBeerDTO())))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(beerRepository, never()).save(any());
+    }
+
+    // the cache still has version 1, e.g. on an instance that did not see the last write
+    @Test
+    void updateBeerByIdIfMatchWithAStaleCache() throws Exception {
+        Beer beer = getValidBeer();
+        given(beerRepository.findById(beer.getId())).willReturn(Optional.of(beer));
+
+        mockMvc.perform(get("/api/v1/beer/{beerId}", beer.getId().toString())
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+
+        Beer current = getValidBeer();
+        current.setId(beer.getId());
+        current.setVersion(2L);
+        Beer updatedBeer = getValidBeer();
+        updatedBeer.setId(beer.getId());
+        updatedBeer.setVersion(3L);
+        given(beerRepository.findById(beer.getId())).willReturn(Optional.of(current));
+        given(beerRepository.save(any())).willReturn(updatedBeer);
+
+        mockMvc.perform(put("/api/v1/beer/{beerId}", beer.getId().toString())
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(getValidBeerDTO())))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+    }
+
+    @Test
+    void patchBeerById() throws Exception {
+        UUID beerId = UUID.randomUUID();
+        given(beerRepository.updateAttributes(eq(beerId), eq(3L), any())).willReturn(1);
+
+        ConstrainedFields fields = new ConstrainedFields(BeerPatchDTO.class);
+
+        mockMvc.perform(patch("/api/v1/beer/{beerId}", beerId.toString())
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"price\": 10.95}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                .andDo(document("v1/beer-patch",
+                        requestHeaders(
+                                headerWithName(HttpHeaders.IF_MATCH).optional().description("ETag of the beer the patch is based on")
+                        ),
+                        requestFields(
+                                fields.withPath("beerName").optional().type(String.class).description("New name of the beer"),
+                                fields.withPath("beerStyle").optional().type(String.class).description("New style of the beer"),
+                                fields.withPath("upc").optional().type(Long.class).description("New UPC of the beer"),
+                                fields.withPath("price").optional().description("New price of the beer")
+                        )));
+
+        verify(beerRepository, never()).findById(any());
+        verify(beerRepository).updateAttributes(beerId, 3L, Map.of("price", new BigDecimal("10.95")));
+    }
+
+    @Test
+    void patchBeerByIdNotFound() throws Exception {
+        mockMvc.perform(patch("/api/v1/beer/{beerId}", UUID.randomUUID().toString())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"beerName\": \"Mönchsambacher Export\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void patchBeerByIdBlankName() throws Exception {
+        UUID beerId = UUID.randomUUID();
+
+        mockMvc.perform(patch("/api/v1/beer/{beerId}", beerId.toString())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"beerName\": \"   \"}"))
+                .andExpect(status().isBadRequest());
+
+        verify(beerRepository, never()).updateAttributes(any(), any(), any());
+    }
+
+    @Test
+    void patchBeerByIdConflict() throws Exception {
+        UUID beerId = UUID.randomUUID();
+        given(beerRepository.findVersionById(beerId)).willReturn(Optional.of(5L));
+
+        mockMvc.perform(patch("/api/v1/beer/{beerId}", beerId.toString())
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"price\": 10.95}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void patchBeerByIdUpcTaken() throws Exception {
+        UUID beerId = UUID.randomUUID();
+        given(beerRepository.updateAttributes(eq(beerId), any(), any()))
+                .willThrow(new DataIntegrityViolationException("Unique index or primary key violation"));
+
+        mockMvc.perform(patch("/api/v1/beer/{beerId}", beerId.toString())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"upc\": 1900024312001}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void updateBeerByIdUpcTaken() throws Exception {
+        Beer beer = getValidBeer();
+        given(beerRepository.findById(beer.getId())).willReturn(Optional.of(beer));
+        given(beerRepository.save(any()))
+                .willThrow(new DataIntegrityViolationException("Unique index or primary key violation"));
+
+        mockMvc.perform(put("/api/v1/beer/{beerId}", beer.getId().toString())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(getValidBeerDTO())))
+                .andExpect(status().isConflict());
+    }
+
     BeerDTO getValidBeerDTO() {
         return BeerDTO.builder()
                 .beerName("Mönchsambacher Weizen")
@@ -139,6 +1037,26 @@ class BeerControllerTest {
 
     }
 
+    // the events are sent on a thread of the change feed, an event is complete with the empty line after it
+    private static String awaitEvent(MvcResult mvcResult, String event) throws Exception {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        String content = mvcResult.getResponse().getContentAsString();
+
+        while (!content.contains(event) || !content.substring(content.indexOf(event)).contains("\n\n")) {
+            assertTrue(System.nanoTime() < deadline, content);
+            Thread.sleep(10);
+            content = mvcResult.getResponse().getContentAsString();
+        }
+
+        return content;
+    }
+
+    // CBOR and Smile bodies are unreadable in the snippets, they show their size instead
+    private static OperationPreprocessor binaryBodyAsSize() {
+        return new ContentModifyingOperationPreprocessor((content, contentType) -> content.length == 0 ? content
+                : ("<" + content.length + " bytes of " + contentType + ">").getBytes(StandardCharsets.UTF_8));
+    }
+
     // needed for documenting Constraints in the DTO with Spring REST docs
     // with Java reflection from the bean validation for the DTO's fields and their constraints
     private static class ConstrainedFields {
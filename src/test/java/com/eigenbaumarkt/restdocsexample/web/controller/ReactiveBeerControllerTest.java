@@ -0,0 +1,299 @@
+package com.eigenbaumarkt.restdocsexample.web.controller;
+
+import com.eigenbaumarkt.restdocsexample.config.BinaryFormatsConfig;
+import com.eigenbaumarkt.restdocsexample.domain.Beer;
+import com.eigenbaumarkt.restdocsexample.repositories.ReactiveBeerRepository;
+import com.eigenbaumarkt.restdocsexample.services.BeerCountCache;
+import com.eigenbaumarkt.restdocsexample.services.ReactiveBeerServiceImpl;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerDTO;
+import com.eigenbaumarkt.restdocsexample.web.model.BeerStyleEnum;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.restdocs.AutoConfigureRestDocs;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.restdocs.RestDocumentationExtension;
+import org.springframework.restdocs.constraints.ConstraintDescriptions;
+import org.springframework.restdocs.payload.FieldDescriptor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.atMostOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.restdocs.payload.PayloadDocumentation.*;
+import static org.springframework.restdocs.request.RequestDocumentation.*;
+import static org.springframework.restdocs.snippet.Attributes.key;
+import static org.springframework.restdocs.webtestclient.WebTestClientRestDocumentation.document;
+
+// the REST Docs tests of BeerControllerTest against the WebFlux controller of the reactive profile
+@AutoConfigureRestDocs(uriScheme = "https", uriHost = "dev.eigenbaumarkt.com", uriPort = 80)
+@WebFluxTest(ReactiveBeerController.class)
+@ActiveProfiles("reactive")
+@ExtendWith(RestDocumentationExtension.class)
+@ComponentScan(basePackages = "com.eigenbaumarkt.restdocsexample.web.mappers")
+@Import({ReactiveBeerServiceImpl.class, BeerCountCache.class, BinaryFormatsConfig.class})
+class ReactiveBeerControllerTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @MockBean
+    ReactiveBeerRepository reactiveBeerRepository;
+
+    @Test
+    void getBeerById() {
+        Beer beer = getValidBeer();
+        given(reactiveBeerRepository.findById(beer.getId())).willReturn(Mono.just(beer));
+
+        ConstrainedFields fields = new ConstrainedFields(BeerDTO.class);
+
+        webTestClient.get().uri("/api/v1/beer/{beerId}", beer.getId())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody()
+                .jsonPath("$.beerName").isEqualTo(beer.getBeerName())
+                .consumeWith(document("v1/reactive-beer-get",
+                        pathParameters(
+                                parameterWithName("beerId").description("UUID of desired beer to get.")
+                        ),
+                        responseFields(
+                                fields.withPath("id").description("Id of Beer").type(UUID.class),
+                                fields.withPath("version").description("Version number").type(Integer.class),
+                                fields.withPath("createdDate").description("Date when entry was created").type(OffsetDateTime.class),
+                                fields.withPath("lastModifiedDate").description("Date when entry was updated the last time").type(OffsetDateTime.class),
+                                fields.withPath("beerName").description("Name of the beer"),
+                                fields.withPath("beerStyle").description("Style of the beer"),
+                                fields.withPath("upc").description("UPC of the beer"),
+                                fields.withPath("price").description("price per you_name_it"),
+                                fields.withPath("quantityOnHand").description("Quantity on hand")
+                        )));
+    }
+
+    @Test
+    void getBeerByIdNotFound() {
+        given(reactiveBeerRepository.findById(any(UUID.class))).willReturn(Mono.empty());
+
+        webTestClient.get().uri("/api/v1/beer/{beerId}", UUID.randomUUID())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void getBeerByIdNotModified() {
+        Beer beer = getValidBeer();
+        given(reactiveBeerRepository.findById(beer.getId())).willReturn(Mono.just(beer));
+
+        webTestClient.get().uri("/api/v1/beer/{beerId}", beer.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void listBeers() {
+        given(reactiveBeerRepository.findPage(26, 0)).willReturn(Flux.just(getValidBeer(), getValidBeer()));
+        given(reactiveBeerRepository.count()).willReturn(Mono.just(2L));
+
+        webTestClient.get().uri("/api/v1/beer")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content.length()").isEqualTo(2)
+                .jsonPath("$.totalElements").isEqualTo(2)
+                .jsonPath("$.nextCursor").doesNotExist()
+                .consumeWith(document("v1/reactive-beer-list",
+                        requestParameters(
+                                parameterWithName("pageNumber").optional().description("Number of the page, starting with 0"),
+                                parameterWithName("pageSize").optional().description("Beers per page, 25 by default, at most 1000"),
+                                parameterWithName("cursor").optional().description("nextCursor of the previous page"),
+                                parameterWithName("withCount").optional().description("false skips counting the beers")
+                        )));
+    }
+
+    // the count is cached for beer.listing.count-ttl, an earlier test may have counted already
+    @Test
+    void listBeersSharesTheCount() {
+        given(reactiveBeerRepository.findPage(26, 0)).willReturn(Flux.just(getValidBeer(), getValidBeer()));
+        given(reactiveBeerRepository.count()).willReturn(Mono.just(2L));
+
+        for (int i = 0; i < 3; i++) {
+            webTestClient.get().uri("/api/v1/beer")
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.totalElements").isEqualTo(2);
+        }
+
+        verify(reactiveBeerRepository, atMostOnce()).count();
+    }
+
+    @Test
+    void listBeersSmile() throws IOException {
+        given(reactiveBeerRepository.findPage(26, 0)).willReturn(Flux.just(getValidBeer(), getValidBeer()));
+        given(reactiveBeerRepository.count()).willReturn(Mono.just(2L));
+
+        byte[] smile = webTestClient.get().uri("/api/v1/beer")
+                .accept(BinaryFormatsConfig.APPLICATION_SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(BinaryFormatsConfig.APPLICATION_SMILE)
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+
+        JsonNode page = new ObjectMapper(new SmileFactory()).readTree(smile);
+
+        assertEquals(2, page.get("content").size());
+        // the ObjectMapper of Spring Boot, not the default one of WebFlux
+        assertTrue(page.get("content").get(0).get("createdDate").isTextual());
+    }
+
+    @Test
+    void saveNewBeer() {
+        given(reactiveBeerRepository.insert(any(Beer.class))).willAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        ConstrainedFields fields = new ConstrainedFields(BeerDTO.class);
+
+        webTestClient.post().uri("/api/v1/beer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(getValidBeerDTO())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .consumeWith(document("v1/reactive-beer-post",
+                        requestFields(
+                                fields.withPath("id").ignored(),
+                                fields.withPath("version").ignored(),
+                                fields.withPath("createdDate").ignored(),
+                                fields.withPath("lastModifiedDate").ignored(),
+                                fields.withPath("beerName").description("The name of the beer"),
+                                fields.withPath("beerStyle").description("The style of the beer"),
+                                fields.withPath("upc").description("Beer UPC"),
+                                fields.withPath("price").description("The price of the beer"),
+                                fields.withPath("quantityOnHand").ignored()
+                        )));
+    }
+
+    @Test
+    void saveNewBeerInvalid() {
+        BeerDTO beerDTO = getValidBeerDTO();
+        beerDTO.setBeerName(null);
+
+        webTestClient.post().uri("/api/v1/beer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(beerDTO)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(reactiveBeerRepository, never()).insert(any());
+    }
+
+    @Test
+    void updateBeerByIdIfMatch() {
+        Beer beer = getValidBeer();
+        given(reactiveBeerRepository.findById(beer.getId())).willReturn(Mono.just(beer));
+        given(reactiveBeerRepository.update(any(Beer.class), eq(1L))).willReturn(Mono.just(1));
+
+        webTestClient.put().uri("/api/v1/beer/{beerId}", beer.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                .bodyValue(getValidBeerDTO())
+                .exchange()
+                .expectStatus().isNoContent()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"2\"");
+    }
+
+    @Test
+    void updateBeerByIdPreconditionFailed() {
+        Beer beer = getValidBeer();
+        given(reactiveBeerRepository.findById(beer.getId())).willReturn(Mono.just(beer));
+
+        webTestClient.put().uri("/api/v1/beer/{beerId}", beer.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(getValidBeerDTO())
+                .exchange()
+                .expectStatus().isEqualTo(412);
+
+        verify(reactiveBeerRepository, never()).update(any(), anyLong());
+    }
+
+    @Test
+    void updateBeerByIdConcurrentlyChanged() {
+        Beer beer = getValidBeer();
+        given(reactiveBeerRepository.findById(beer.getId())).willReturn(Mono.just(beer));
+        given(reactiveBeerRepository.update(any(Beer.class), eq(1L))).willReturn(Mono.just(0));
+
+        webTestClient.put().uri("/api/v1/beer/{beerId}", beer.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                .bodyValue(getValidBeerDTO())
+                .exchange()
+                .expectStatus().isEqualTo(412);
+    }
+
+    Beer getValidBeer() {
+        return Beer.builder()
+                .id(UUID.randomUUID())
+                .version(1L)
+                .createdDate(new Timestamp(System.currentTimeMillis()))
+                .beerName("Mönchsambacher Lager")
+                .beerStyle(BeerStyleEnum.LAGER.name())
+                .price(new BigDecimal("12.95"))
+                .upc(1900024312001L)
+                .build();
+    }
+
+    BeerDTO getValidBeerDTO() {
+        return BeerDTO.builder()
+                .beerName("Mönchsambacher Weizen")
+                .beerStyle(BeerStyleEnum.WEIZEN_HELL)
+                .price(new BigDecimal("9.99"))
+                .upc(123123123123L)
+                .build();
+    }
+
+    // needed for documenting Constraints in the DTO with Spring REST docs
+    private static class ConstrainedFields {
+        private final ConstraintDescriptions constraintDescriptions;
+
+        ConstrainedFields(Class<?> input) {
+            this.constraintDescriptions = new ConstraintDescriptions(input);
+        }
+
+        private FieldDescriptor withPath(String path) {
+            return fieldWithPath(path).attributes(key("constraints").value(StringUtils
+                    .collectionToDelimitedString(this.constraintDescriptions
+                            .descriptionsForProperty(path), ". ")));
+        }
+    }
+}